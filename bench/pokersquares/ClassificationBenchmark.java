@@ -0,0 +1,80 @@
+package pokersquares;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ClassificationBenchmark - throughput of classifying complete and partial five-card hands with
+ * PokerHand.getPokerHand and PokerHandClassifier.getPokerHand, and of complete hands with a HandTable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassificationBenchmark {
+
+	/**
+	 * Classification of pregenerated hands by a getPokerHand method.
+	 */
+	@State(Scope.Thread)
+	public static class Classifier {
+		@Param({"PokerHand", "PokerHandClassifier"})
+		public String classifier; // class of the getPokerHand method
+
+		@Param({"complete", "partial"})
+		public String hand; // kind of hands classified
+
+		LongSupplier operation; // classification of the next hand
+
+		@Setup
+		public void setup() {
+			operation = Workloads.create("classify", classifier, hand);
+		}
+	}
+
+	/**
+	 * Classification of pregenerated complete hands by a HandTable written to a temporary file.
+	 */
+	@State(Scope.Thread)
+	public static class Table {
+		LongSupplier operation; // classification of the next hand
+
+		@Setup
+		public void setup() {
+			operation = Workloads.create("classifyWithHandTable");
+		}
+	}
+
+	/**
+	 * Classify a hand with getPokerHand.
+	 * @param state classifier and hands
+	 * @return the hand classification identification number
+	 */
+	@Benchmark
+	public long getPokerHand(Classifier state) {
+		return state.operation.getAsLong();
+	}
+
+	/**
+	 * Classify a complete hand with HandTable.getPokerHandId.
+	 * @param state hand table and hands
+	 * @return the hand classification identification number
+	 */
+	@Benchmark
+	public long handTable(Table state) {
+		return state.operation.getAsLong();
+	}
+}
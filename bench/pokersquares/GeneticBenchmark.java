@@ -0,0 +1,84 @@
+package pokersquares;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GeneticBenchmark - throughput of Population generations at several population sizes, and of Dna.crossOver, with
+ * the current and the legacy operators.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneticBenchmark {
+
+	/**
+	 * A seeded population.
+	 */
+	@State(Scope.Thread)
+	public static class Generations {
+		@Param({"100", "500", "1000"})
+		public int populationCount; // number of Dna in the population
+
+		@Param({"UNIFORM/SHUFFLE", "LEGACY_UNIFORM/LEGACY_SHUFFLE"})
+		public String operators; // crossover and mutation operator names
+
+		LongSupplier operation; // scoring and generation of the next generation
+
+		@Setup
+		public void setup() {
+			String[] names = operators.split("/");
+			operation = Workloads.create("generate", populationCount, names[0], names[1]);
+		}
+	}
+
+	/**
+	 * Two fixed parents.
+	 */
+	@State(Scope.Thread)
+	public static class Parents {
+		@Param({"UNIFORM", "PMX", "ORDER", "LEGACY_UNIFORM"})
+		public String operator; // crossover operator name
+
+		LongSupplier operation; // crossover of the parents
+
+		@Setup
+		public void setup() {
+			operation = Workloads.create("crossOver", operator);
+		}
+	}
+
+	/**
+	 * Score the population and generate the next generation.
+	 * @param state population
+	 * @return the number of generations
+	 */
+	@Benchmark
+	public long generate(Generations state) {
+		return state.operation.getAsLong();
+	}
+
+	/**
+	 * Cross over the parents.
+	 * @param state parents
+	 * @return the card id of the child's first card
+	 */
+	@Benchmark
+	public long crossOver(Parents state) {
+		return state.operation.getAsLong();
+	}
+}
@@ -0,0 +1,50 @@
+package pokersquares;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RolloutBenchmark - throughput of RandomMCPlayer.simPlay rollouts at several depth limits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RolloutBenchmark {
+
+	@Param({"1", "2", "5", "24"})
+	public int depthLimit; // rollout depth limit
+
+	private LongSupplier operation; // one rollout
+
+	/**
+	 * Create the rollout operation.
+	 */
+	@Setup
+	public void setup() {
+		operation = Workloads.create("simPlay", depthLimit);
+	}
+
+	/**
+	 * Perform one rollout.
+	 * @return the rollout score
+	 */
+	@Benchmark
+	public long simPlay() {
+		return operation.getAsLong();
+	}
+}
@@ -0,0 +1,84 @@
+package pokersquares;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScoringBenchmark - throughput of scoring full grids with PokerSquaresPointSystem.getScore (Card[][] grids, with and
+ * without a HandTable, and PackedGrids), and of scoring batches of grids with BatchScorer, in grids per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	static final int BATCH_SIZE = 512; // number of grids per batch
+
+	/**
+	 * Scoring of pregenerated grids one at a time.
+	 */
+	@State(Scope.Thread)
+	public static class Grids {
+		@Param({"Card[][]", "HandTable", "PackedGrid"})
+		public String grid; // grid representation (HandTable: Card[][] classified with a hand table)
+
+		LongSupplier operation; // scoring of the next grid
+
+		@Setup
+		public void setup() {
+			operation = Workloads.create("score", grid);
+		}
+	}
+
+	/**
+	 * Scoring of a batch of pregenerated grids.
+	 */
+	@State(Scope.Thread)
+	public static class Batch {
+		@Param({"BatchScorer.score", "BatchScorer.setGrid+score", "getScore"})
+		public String method; // batch scoring method
+
+		LongSupplier operation; // scoring of the batch
+
+		@Setup
+		public void setup() {
+			operation = Workloads.create("scoreBatch", method, BATCH_SIZE);
+		}
+	}
+
+	/**
+	 * Score a full grid.
+	 * @param state grids
+	 * @return the grid score
+	 */
+	@Benchmark
+	public long getScore(Grids state) {
+		return state.operation.getAsLong();
+	}
+
+	/**
+	 * Score a batch of BATCH_SIZE full grids.
+	 * @param state batch of grids
+	 * @return the score of the last grid, or the total score for getScore
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public long scoreBatch(Batch state) {
+		return state.operation.getAsLong();
+	}
+}
@@ -0,0 +1,43 @@
+package pokersquares;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.LongSupplier;
+
+/**
+ * Workloads - access from the benchmarks to the operations created by the factory methods of PokerSquaresBenchmark.
+ * The Poker Squares classes are in the default package, which other packages cannot refer to, and JMH benchmarks
+ * cannot be in the default package, so the factories are found by reflection once per trial; the measured calls are
+ * then plain interface calls.
+ */
+final class Workloads {
+
+	private static final String FACTORY_CLASS = "PokerSquaresBenchmark"; // class of the workload factory methods
+
+	/**
+	 * Workloads has only static members.
+	 */
+	private Workloads() {
+	}
+
+	/**
+	 * Create the operation of the given factory method of PokerSquaresBenchmark with the given arguments.
+	 * @param factory factory method name
+	 * @param args factory method arguments
+	 * @return the benchmarked operation
+	 */
+	static LongSupplier create(String factory, Object... args) {
+		try {
+			for (Method method : Class.forName(FACTORY_CLASS).getMethods())
+				if (method.getName().equals(factory) && method.getParameterCount() == args.length)
+					return (LongSupplier) method.invoke(null, args);
+			throw new IllegalArgumentException("No workload factory " + factory + " with " + args.length + " arguments");
+		}
+		catch (InvocationTargetException e) {
+			throw new IllegalStateException("Workload " + factory + " could not be created", e.getCause());
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Workload " + factory + " could not be created", e);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * BatchScorer - scores many full Poker Squares grids at once under one point system.  Grids are stored in a
+ * structure-of-arrays layout: the card ranks and suits of grid position pos of grid g are at index
+ * pos * capacity + g of two byte arrays, so that scoring a line visits its five positions of all grids as five
+ * contiguous streams.  Each line of each grid is classified without branches or per-hand arrays: the number of equal
+ * rank pairs among the five cards identifies the rank histogram (0 for five distinct ranks, 1 one pair, 2 two pair,
+ * 3 three of a kind, 4 full house, 6 four of a kind), the rank bit mask identifies straights, and the suits identify
+ * flushes.  These combine into a key into a small table of line scores precomputed from the point system.  The
+ * inner loops over grids are plain int arithmetic on primitive arrays, which the JIT compiler may vectorize.
+ *
+ * Only full grids (no empty positions) can be scored.  A scorer holds its grids' cards and is not thread-safe.
+ */
+public class BatchScorer {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of rows/columns in square grid
+	private static final int NUM_POS = SIZE * SIZE; // number of positions in square grid
+	private static final int ACE_HIGH_STRAIGHT = 1 | 0xF << 9; // rank mask of A, T, J, Q, K (ranks 0, 9, 10, 11, 12)
+	private static final int NUM_KEYS = 7 << 3; // line keys: pairs << 3 | flush << 2 | straight << 1 | royal
+
+	private final int capacity; // maximum number of grids
+	private final byte[] ranks; // card ranks indexed by position * capacity + grid
+	private final byte[] suits; // card suits indexed by position * capacity + grid
+	private final int[] lineScores = new int[NUM_KEYS]; // line score of each line key
+
+	/**
+	 * Create a batch scorer for the given point system and maximum number of grids.
+	 * @param system point system
+	 * @param capacity maximum number of grids
+	 */
+	public BatchScorer(PokerSquaresPointSystem system, int capacity) {
+		this.capacity = capacity;
+		ranks = new byte[NUM_POS * capacity];
+		suits = new byte[NUM_POS * capacity];
+		int[] pairHands = {PokerHand.HIGH_CARD.id, PokerHand.ONE_PAIR.id, PokerHand.TWO_PAIR.id, PokerHand.THREE_OF_A_KIND.id,
+				PokerHand.FULL_HOUSE.id, -1, PokerHand.FOUR_OF_A_KIND.id}; // hand of each number of equal rank pairs
+		for (int key = 0; key < NUM_KEYS; key++) {
+			int pairs = key >>> 3;
+			boolean flush = (key & 4) != 0, straight = (key & 2) != 0, royal = (key & 1) != 0;
+			int handId;
+			if (pairs > 0)
+				handId = pairHands[pairs];
+			else if (flush)
+				handId = royal ? PokerHand.ROYAL_FLUSH.id : straight ? PokerHand.STRAIGHT_FLUSH.id : PokerHand.FLUSH.id;
+			else
+				handId = straight ? PokerHand.STRAIGHT.id : PokerHand.HIGH_CARD.id;
+			lineScores[key] = handId < 0 ? 0 : system.getHandScore(handId); // (unreachable keys score 0)
+		}
+	}
+
+	/**
+	 * Get the maximum number of grids.
+	 * @return the maximum number of grids
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Set the grid at the given index of the batch.
+	 * @param index grid index in [0, capacity - 1]
+	 * @param grid full Card grid
+	 */
+	public void setGrid(int index, Card[][] grid) {
+		for (int pos = 0; pos < NUM_POS; pos++) {
+			Card card = grid[pos / SIZE][pos % SIZE];
+			ranks[pos * capacity + index] = (byte) card.getRank();
+			suits[pos * capacity + index] = (byte) card.getSuit();
+		}
+	}
+
+	/**
+	 * Set the grid at the given index of the batch.
+	 * @param index grid index in [0, capacity - 1]
+	 * @param grid full packed grid
+	 */
+	public void setGrid(int index, PackedGrid grid) {
+		for (int pos = 0; pos < NUM_POS; pos++) {
+			int cardId = grid.get(pos);
+			ranks[pos * capacity + index] = (byte) (cardId % Card.NUM_RANKS);
+			suits[pos * capacity + index] = (byte) (cardId / Card.NUM_RANKS);
+		}
+	}
+
+	/**
+	 * Score grids 0 through numGrids - 1.
+	 * @param numGrids number of grids
+	 * @return the total score of each grid
+	 */
+	public int[] score(int numGrids) {
+		return score(numGrids, new int[numGrids]);
+	}
+
+	/**
+	 * Score grids 0 through numGrids - 1 into the given array.
+	 * @param numGrids number of grids
+	 * @param totals array of at least numGrids grid scores to fill
+	 * @return totals
+	 */
+	public int[] score(int numGrids, int[] totals) {
+		for (int g = 0; g < numGrids; g++)
+			totals[g] = 0;
+		for (int i = 0; i < SIZE; i++) {
+			scoreLine(i * SIZE, 1, numGrids, totals); // row i
+			scoreLine(i, SIZE, numGrids, totals); // column i
+		}
+		return totals;
+	}
+
+	/**
+	 * Add the score of the line of the given first position and position stride of each grid to its total.
+	 */
+	private void scoreLine(int first, int stride, int numGrids, int[] totals) {
+		int o0 = first * capacity, o1 = o0 + stride * capacity, o2 = o1 + stride * capacity, o3 = o2 + stride * capacity, o4 = o3 + stride * capacity;
+		byte[] ranks = this.ranks, suits = this.suits;
+		int[] lineScores = this.lineScores;
+		for (int g = 0; g < numGrids; g++) {
+			int r0 = ranks[o0 + g], r1 = ranks[o1 + g], r2 = ranks[o2 + g], r3 = ranks[o3 + g], r4 = ranks[o4 + g];
+			int s0 = suits[o0 + g];
+			int pairs = eq(r0, r1) + eq(r0, r2) + eq(r0, r3) + eq(r0, r4) + eq(r1, r2) + eq(r1, r3) + eq(r1, r4)
+					+ eq(r2, r3) + eq(r2, r4) + eq(r3, r4);
+			int flush = eq(s0, suits[o1 + g]) & eq(s0, suits[o2 + g]) & eq(s0, suits[o3 + g]) & eq(s0, suits[o4 + g]);
+			int mask = 1 << r0 | 1 << r1 | 1 << r2 | 1 << r3 | 1 << r4;
+			int royal = eq(mask, ACE_HIGH_STRAIGHT);
+			int straight = eq(mask, (mask & -mask) * 0x1F) | royal; // five consecutive ranks, or T J Q K A
+			totals[g] += lineScores[pairs << 3 | flush << 2 | straight << 1 | royal];
+		}
+	}
+
+	/**
+	 * Return 1 if the given values are equal and 0 otherwise.
+	 */
+	private static int eq(int a, int b) {
+		return a == b ? 1 : 0;
+	}
+}
@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * BatchSimulator - Headless engine that plays large numbers of seeded Poker Squares games for one player and point
+ * system on all cores, without printing and without per-game thread creation.  Game i of a batch is dealt exactly
+ * as PokerSquares deals the game with seed startSeed + i, and is scored with the same rules for illegal plays,
+ * exceptions and running out of the per-game time (measured on the worker thread).  Each worker thread creates its
+ * own player from the given factory, so players need not be thread-safe.  Scores stream into per-worker
+ * GameStatistics that are merged at the end.
+ */
+public class BatchSimulator {
+
+	private static final int SIZE = PokerSquares.SIZE; // Poker Squares number of rows/columns
+	private static final int NUM_POS = SIZE * SIZE; // number of positions in grid
+	private static final int CHUNK = 1024; // number of consecutive games claimed by a worker at a time
+
+	private final Supplier<PokerSquaresPlayer> playerFactory; // creates one player per worker thread
+	private final PokerSquaresPointSystem system; // point system
+	private int numThreads = Runtime.getRuntime().availableProcessors(); // number of worker threads
+	private long gameMillis = PokerSquares.GAME_MILLIS; // milliseconds given to the player for each game
+	private final int minPoints; // score for illegal plays, timeouts and exceptions
+
+	/**
+	 * Create a batch simulator for the given player factory and point system.
+	 * @param playerFactory factory creating new instances of the player
+	 * @param system point system
+	 */
+	public BatchSimulator(Supplier<PokerSquaresPlayer> playerFactory, PokerSquaresPointSystem system) {
+		this.playerFactory = playerFactory;
+		this.system = system;
+		minPoints = getMinPoints(system);
+	}
+
+	/**
+	 * Get the score of illegal plays, timeouts and exceptions in the given point system: ten times its minimum hand
+	 * score, as in PokerSquares.
+	 * @param system point system
+	 * @return the minimum game score
+	 */
+	static int getMinPoints(PokerSquaresPointSystem system) {
+		int min = Integer.MAX_VALUE;
+		for (int points : system.getScoreTable())
+			min = Math.min(min, points);
+		return 10 * min;
+	}
+
+	/**
+	 * Set the number of worker threads (by default, the number of available processors).
+	 * @param numThreads number of worker threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Set the number of milliseconds given to the player for each game (by default, PokerSquares.GAME_MILLIS).
+	 * @param gameMillis milliseconds per game
+	 */
+	public void setGameMillis(long gameMillis) {
+		this.gameMillis = gameMillis;
+	}
+
+	/**
+	 * Play the given number of games with seeds startSeed, startSeed + 1, ... and return their statistics.
+	 * @param numGames number of games
+	 * @param startSeed seed of the first game
+	 * @return statistics of all game scores
+	 */
+	public GameStatistics run(final long numGames, final long startSeed) {
+		final AtomicLong nextGame = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			ArrayList<Future<GameStatistics>> futures = new ArrayList<Future<GameStatistics>>();
+			for (int t = 0; t < numThreads; t++)
+				futures.add(executor.submit(new Callable<GameStatistics>() {
+					@Override
+					public GameStatistics call() {
+						PokerSquaresPlayer player = playerFactory.get();
+						player.setPointSystem(system, PokerSquares.POINT_SYSTEM_MILLIS);
+						GameStatistics statistics = new GameStatistics(system);
+						Random random = new Random();
+						int[] deck = new int[Card.NUM_CARDS];
+						DeckView deckView = new DeckView(deck);
+						Card[][] grid = new Card[SIZE][SIZE];
+						long first;
+						while ((first = nextGame.getAndAdd(CHUNK)) < numGames)
+							for (long game = first; game < Math.min(first + CHUNK, numGames); game++) {
+								random.setSeed(startSeed + game);
+								player.setSeed(PokerSquares.getPlayerSeed(startSeed + game));
+								statistics.add(play(player, system, minPoints, gameMillis, random, deck, deckView, grid));
+							}
+						return statistics;
+					}
+				}));
+			GameStatistics statistics = new GameStatistics(system);
+			for (Future<GameStatistics> future : futures)
+				statistics.merge(future.get());
+			return statistics;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Batch simulation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Batch simulation failed", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Play the given number of games with seeds startSeed, startSeed + 1, ... on the calling thread with the given
+	 * player, which must already have been given the point system, and return their statistics.
+	 * @param player player
+	 * @param system point system
+	 * @param minPoints score for illegal plays, timeouts and exceptions (see getMinPoints)
+	 * @param gameMillis milliseconds given to the player for each game
+	 * @param numGames number of games
+	 * @param startSeed seed of the first game
+	 * @return statistics of all game scores
+	 */
+	static GameStatistics runSerial(PokerSquaresPlayer player, PokerSquaresPointSystem system, int minPoints, long gameMillis, long numGames, long startSeed) {
+		GameStatistics statistics = new GameStatistics(system);
+		Random random = new Random();
+		int[] deck = new int[Card.NUM_CARDS];
+		DeckView deckView = new DeckView(deck);
+		Card[][] grid = new Card[SIZE][SIZE];
+		for (long game = 0; game < numGames; game++) {
+			random.setSeed(startSeed + game);
+			player.setSeed(PokerSquares.getPlayerSeed(startSeed + game));
+			statistics.add(play(player, system, minPoints, gameMillis, random, deck, deckView, grid));
+		}
+		return statistics;
+	}
+
+	/**
+	 * Play one game and return its score.
+	 * @param player player (already given the point system)
+	 * @param system point system
+	 * @param minPoints score for illegal plays, timeouts and exceptions
+	 * @param gameMillis milliseconds given to the player for the game
+	 * @param random seeded pseudorandom number generator for the deal
+	 * @param deck deck array reused between games
+	 * @param deckView read-only view of deck
+	 * @param grid grid array reused between games
+	 * @return game score
+	 */
+	private static int play(PokerSquaresPlayer player, PokerSquaresPointSystem system, int minPoints, long gameMillis, Random random, int[] deck, DeckView deckView, Card[][] grid) {
+		try {
+			player.init();
+
+			// shuffle deck exactly as PokerSquares does, to be dealt from the end
+			DeckView.shuffle(deck, random);
+			deckView.setNumDealt(0);
+			player.setDeckView(deckView);
+
+			for (int row = 0; row < SIZE; row++)
+				for (int col = 0; col < SIZE; col++)
+					grid[row][col] = null;
+
+			long nanosRemaining = gameMillis * 1000000L;
+			for (int cardsPlaced = 0; cardsPlaced < NUM_POS; cardsPlaced++) {
+				Card card = Card.getCard(deck[deck.length - 1 - cardsPlaced]);
+				deckView.setNumDealt(cardsPlaced + 1);
+				long startTime = System.nanoTime();
+				int[] play = player.getPlay(card, nanosRemaining / 1000000L);
+				nanosRemaining -= System.nanoTime() - startTime;
+				if (nanosRemaining < 0) // times out
+					return minPoints;
+				if (play.length != 2 || play[0] < 0 || play[0] >= SIZE || play[1] < 0 || play[1] >= SIZE || grid[play[0]][play[1]] != null) // illegal play
+					return minPoints;
+				grid[play[0]][play[1]] = card;
+			}
+			return system.getScore(grid);
+		}
+		catch (Exception e) {
+			return minPoints;
+		}
+	}
+
+	/**
+	 * Demonstrate headless batch simulation of RandomPlayer and FlushPlayer with the British point system.
+	 * @param args optional number of games per player (default 1000000)
+	 */
+	public static void main(String[] args) {
+		long numGames = args.length > 0 ? Long.parseLong(args[0]) : 1000000L;
+		HandTable.installDefault();
+		PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+		ArrayList<Supplier<PokerSquaresPlayer>> factories = new ArrayList<Supplier<PokerSquaresPlayer>>();
+		factories.add(new Supplier<PokerSquaresPlayer>() {
+			@Override
+			public PokerSquaresPlayer get() {
+				return new RandomPlayer();
+			}
+		});
+		factories.add(new Supplier<PokerSquaresPlayer>() {
+			@Override
+			public PokerSquaresPlayer get() {
+				return new FlushPlayer();
+			}
+		});
+		for (Supplier<PokerSquaresPlayer> factory : factories) {
+			long start = System.nanoTime();
+			GameStatistics statistics = new BatchSimulator(factory, system).run(numGames, 0L);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Player: \"%s\"\n%s\n%.0f games per minute\n%s\n", factory.get().getName(), statistics,
+					numGames * 60 / seconds, statistics.histogramToString(10));
+		}
+		if (Metrics.isEnabled())
+			System.out.print(Metrics.toCsv());
+	}
+}
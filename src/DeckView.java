@@ -0,0 +1,74 @@
+import java.util.Random;
+
+/**
+ * DeckView - a read-only view of the undealt cards of a Poker Squares game deck in the order they will be dealt.
+ * The view reads the referee's deck array directly, so it reflects each deal without copying.  Index 0 is the card
+ * that will be dealt after the card currently being played.
+ */
+public final class DeckView {
+
+	private final int[] cardIds; // deck card identification numbers, dealt from the end
+	private int numDealt; // number of cards dealt
+
+	/**
+	 * Create a view of the given deck array, which is dealt from the end.
+	 * @param cardIds deck card identification numbers
+	 */
+	DeckView(int[] cardIds) {
+		this.cardIds = cardIds;
+	}
+
+	/**
+	 * Set the number of cards dealt (including the card currently being played).
+	 * @param numDealt number of cards dealt
+	 */
+	void setNumDealt(int numDealt) {
+		this.numDealt = numDealt;
+	}
+
+	/**
+	 * Get the number of undealt cards.
+	 * @return the number of undealt cards
+	 */
+	public int size() {
+		return cardIds.length - numDealt;
+	}
+
+	/**
+	 * Get the identification number of the undealt card at the given index of the dealing order.
+	 * @param index index in [0, size() - 1], 0 being the next card dealt
+	 * @return the card identification number
+	 */
+	public int getCardId(int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+		return cardIds[cardIds.length - 1 - numDealt - index];
+	}
+
+	/**
+	 * Get the undealt card at the given index of the dealing order.
+	 * @param index index in [0, size() - 1], 0 being the next card dealt
+	 * @return the card
+	 */
+	public Card getCard(int index) {
+		return Card.getCard(getCardId(index));
+	}
+
+	/**
+	 * Fill the given array with a deck shuffled exactly as Collections.shuffle shuffles a list of Card.getAllCards()
+	 * with the given generator, so that dealing from the end of the array gives the same cards as popping them from
+	 * such a shuffled stack.
+	 * @param cardIds array of Card.NUM_CARDS card identification numbers to fill
+	 * @param random pseudorandom number generator
+	 */
+	static void shuffle(int[] cardIds, Random random) {
+		for (int i = 0; i < cardIds.length; i++)
+			cardIds[i] = i;
+		for (int i = cardIds.length; i > 1; i--) {
+			int j = random.nextInt(i);
+			int cardId = cardIds[i - 1];
+			cardIds[i - 1] = cardIds[j];
+			cardIds[j] = cardId;
+		}
+	}
+}
@@ -1,16 +1,47 @@
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 public class Dna {
-    private Card[][] cards;
+    // LEGACY_* are the original operators (an unseeded Random per draw, placed cards found by scanning the child),
+    // kept so that benchmarks can compare generations per second before and after
+    public enum CrossoverOperator { UNIFORM, PMX, ORDER, LEGACY_UNIFORM }
+    public enum MutationOperator { SHUFFLE, SWAP, INSERT, LEGACY_SHUFFLE }
+
+    private static final int NUM_POS = PokerSquares.SIZE * PokerSquares.SIZE;
+
+    // default generator of each thread for the overloads without an explicit generator
+    private static final ThreadLocal<SplittableRandom> threadRandom = new ThreadLocal<SplittableRandom>() {
+        @Override
+        protected SplittableRandom initialValue() {
+            return new SplittableRandom();
+        }
+    };
+
+    // card id -> partner position table of each thread for PMX
+    private static final ThreadLocal<int[]> scratch = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[Card.NUM_CARDS];
+        }
+    };
+
+    private final PackedGrid grid;
     private double fitness;
+    private int score;
+    // point system of the current score, or null if not scored yet (reset whenever the grid is overwritten)
+    private PokerSquaresPointSystem scoredSystem;
 
+    public PackedGrid getGrid() {
+        return grid;
+    }
+
+    // Card grid copy of the arrangement, for players and legacy code
     public Card[][] getCards() {
-        return cards;
+        return grid.toCards();
+    }
+
+    public int getScore() {
+        return score;
     }
 
     public double getFitness() {
@@ -18,51 +49,179 @@ public class Dna {
     }
 
     public Dna(Card[][] cards) {
-        this.cards = cards;
+        this(new PackedGrid(cards));
+    }
+
+    public Dna(PackedGrid grid) {
+        this.grid = grid;
+    }
+
+    // Overwrites this Dna with the arrangement and score of the other.
+    public void copyFrom(Dna other) {
+        grid.copyFrom(other.grid);
+        score = other.score;
+        fitness = other.fitness;
+        scoredSystem = other.scoredSystem;
     }
 
     public void calculateFitness(PokerSquaresPointSystem system) {
-        int score = system.getScore(cards);
+        setScore(system, system.getScore(grid));
+    }
+
+    public boolean isScored(PokerSquaresPointSystem system) {
+        return scoredSystem == system;
+    }
+
+    public void setScore(PokerSquaresPointSystem system, int score) {
+        this.score = score;
         fitness = Math.pow(score/300d, 2);
+        scoredSystem = system;
+    }
+
+    // 64-bit hash of the arrangement, for duplicate detection
+    public long longHashCode() {
+        return grid.longHashCode();
     }
 
     public Dna crossOver(Dna partner) {
-        Card[][] child = new Card[PokerSquares.SIZE][PokerSquares.SIZE];
-        
+        return crossOver(partner, threadRandom.get(), CrossoverOperator.UNIFORM);
+    }
+
+    public Dna crossOver(Dna partner, SplittableRandom random, CrossoverOperator operator) {
+        Dna child = new Dna(new PackedGrid());
+        crossOver(partner, child, random, operator);
+        return child;
+    }
+
+    // Overwrites the given child (neither parent) instead of allocating one.
+    public void crossOver(Dna partner, Dna target, SplittableRandom random, CrossoverOperator operator) {
+        PackedGrid child = target.grid;
+        child.clear();
+        target.scoredSystem = null;
+        switch (operator) {
+            case PMX:
+                partiallyMappedCrossOver(partner, child, random);
+                break;
+            case ORDER:
+                orderCrossOver(partner, child, random);
+                break;
+            case LEGACY_UNIFORM:
+                Card[][] cards = new Card[PokerSquares.SIZE][PokerSquares.SIZE];
+                legacyCrossOver(partner, cards);
+                child.copyFrom(new PackedGrid(cards));
+                break;
+            default:
+                uniformCrossOver(partner, child, random);
+        }
+    }
+
+    // Each cell comes from a randomly chosen parent, else the other parent, else a random unplaced card of the first.
+    private void uniformCrossOver(Dna partner, PackedGrid child, SplittableRandom random) {
+        long placed = 0L;
+        for(int pos = 0; pos < NUM_POS; pos++) {
+            PackedGrid first = random.nextInt(2) == 0 ? grid : partner.grid;
+            PackedGrid second = first == grid ? partner.grid : grid;
+            int card = first.get(pos);
+            if((placed & bit(card)) != 0) {
+                card = second.get(pos);
+            }
+            while((placed & bit(card)) != 0) {
+                // cards from both partners at this position already placed
+                card = first.get(random.nextInt(NUM_POS));
+            }
+            child.set(pos, card);
+            placed |= bit(card);
+        }
+    }
+
+    // PMX: copy a random segment of this Dna, map the conflicting partner cards of the segment through the
+    // segment, and fill the remaining cells from the partner.
+    private void partiallyMappedCrossOver(Dna partner, PackedGrid child, SplittableRandom random) {
+        int[] partnerPos = scratch.get();
+        for(int pos = 0; pos < NUM_POS; pos++) {
+            partnerPos[partner.grid.get(pos)] = pos;
+        }
+        int start = random.nextInt(NUM_POS);
+        int end = start + random.nextInt(NUM_POS - start);
+        long placed = 0L;
+        for(int pos = start; pos <= end; pos++) {
+            child.set(pos, grid.get(pos));
+            placed |= bit(grid.get(pos));
+        }
+        for(int pos = start; pos <= end; pos++) {
+            int card = partner.grid.get(pos);
+            if((placed & bit(card)) != 0) {
+                continue;
+            }
+            int target = pos;
+            while(target >= start && target <= end) {
+                target = partnerPos[grid.get(target)];
+            }
+            child.set(target, card);
+            placed |= bit(card);
+        }
+        for(int pos = 0; pos < NUM_POS; pos++) {
+            if(child.get(pos) == PackedGrid.EMPTY) {
+                child.set(pos, partner.grid.get(pos));
+            }
+        }
+    }
+
+    // OX: copy a random segment of this Dna and fill the remaining cells, starting after the segment, with the
+    // missing cards in the partner's order.
+    private void orderCrossOver(Dna partner, PackedGrid child, SplittableRandom random) {
+        int start = random.nextInt(NUM_POS);
+        int end = start + random.nextInt(NUM_POS - start);
+        long placed = 0L;
+        for(int pos = start; pos <= end; pos++) {
+            child.set(pos, grid.get(pos));
+            placed |= bit(grid.get(pos));
+        }
+        int target = (end + 1) % NUM_POS;
+        for(int i = 1; i <= NUM_POS; i++) {
+            int card = partner.grid.get((end + i) % NUM_POS);
+            if((placed & bit(card)) == 0) {
+                child.set(target, card);
+                target = (target + 1) % NUM_POS;
+            }
+        }
+    }
+
+    private void legacyCrossOver(Dna partner, Card[][] child) {
         for(int i = 0; i < PokerSquares.SIZE; i++) {
             for(int j = 0; j < PokerSquares.SIZE; j++) {
                 int random = new Random().nextInt(2);
                 if(random == 0) {
-                    if (!alreadyPlaced(child, this.cards[i][j]))
-                        child[i][j] = this.cards[i][j];
-                    else if (!alreadyPlaced(child, partner.cards[i][j]))
-                        child[i][j] = partner.cards[i][j];
+                    if (!alreadyPlaced(child, this.grid.getCard(i, j)))
+                        child[i][j] = this.grid.getCard(i, j);
+                    else if (!alreadyPlaced(child, partner.grid.getCard(i, j)))
+                        child[i][j] = partner.grid.getCard(i, j);
                      else {
                         // cards from both partners at this position already placed
                         boolean randomCardPlaced = false;
                         while (!randomCardPlaced) {
                             int r1 = new Random().nextInt(5);
                             int r2 = new Random().nextInt(5);
-                            Card randomCard = this.cards[r1][r2];
+                            Card randomCard = this.grid.getCard(r1, r2);
                             if (!alreadyPlaced(child, randomCard)) {
                                 child[i][j] = randomCard;
                                 randomCardPlaced = true;
-                            } 
+                            }
                         }
                     }
-                        
+
                 } else {
-                    if (!alreadyPlaced(child, partner.cards[i][j]))
-                        child[i][j] = partner.cards[i][j];
-                    else if (!alreadyPlaced(child, this.cards[i][j]))
-                        child[i][j] = this.cards[i][j];
+                    if (!alreadyPlaced(child, partner.grid.getCard(i, j)))
+                        child[i][j] = partner.grid.getCard(i, j);
+                    else if (!alreadyPlaced(child, this.grid.getCard(i, j)))
+                        child[i][j] = this.grid.getCard(i, j);
                      else {
                         // cards from both partners at this position already placed
                         boolean randomCardPlaced = false;
                         while (!randomCardPlaced) {
                             int r1 = new Random().nextInt(5);
                             int r2 = new Random().nextInt(5);
-                            Card randomCard = partner.cards[r1][r2];
+                            Card randomCard = partner.grid.getCard(r1, r2);
                             if (!alreadyPlaced(child, randomCard)) {
                                 child[i][j] = randomCard;
                                 randomCardPlaced = true;
@@ -72,8 +231,10 @@ public class Dna {
                 }
             }
         }
+    }
 
-        return new Dna(child);
+    private static long bit(int cardId) {
+        return 1L << cardId;
     }
 
     public boolean alreadyPlaced(Card[][] child, Card card) {
@@ -88,42 +249,110 @@ public class Dna {
     }
 
     public Dna mutate(float mutationRate) {
-        float random = new Random().nextFloat();
-        if(random <= mutationRate) {
-            return shuffleLimited(this.cards);
+        return mutate(mutationRate, threadRandom.get(), MutationOperator.SHUFFLE);
+    }
+
+    public Dna mutate(float mutationRate, SplittableRandom random, MutationOperator operator) {
+        if(operator == MutationOperator.LEGACY_SHUFFLE) {
+            return new Random().nextFloat() <= mutationRate ? legacyShuffleLimited(getCards()) : this;
+        }
+        if(random.nextDouble() > mutationRate) {
+            return this;
+        }
+        Dna mutated = new Dna(new PackedGrid(grid));
+        mutated.applyMutation(random, operator);
+        return mutated;
+    }
+
+    // Mutates this Dna itself instead of a copy.
+    public void mutateInPlace(float mutationRate, SplittableRandom random, MutationOperator operator) {
+        if(operator == MutationOperator.LEGACY_SHUFFLE) {
+            if(new Random().nextFloat() <= mutationRate) {
+                grid.copyFrom(legacyShuffleLimited(getCards()).grid);
+                scoredSystem = null;
+            }
+            return;
+        }
+        if(random.nextDouble() <= mutationRate) {
+            applyMutation(random, operator);
+        }
+    }
+
+    private void applyMutation(SplittableRandom random, MutationOperator operator) {
+        scoredSystem = null;
+        if(operator == MutationOperator.SHUFFLE) {
+            shuffleLimited(grid, random);
+            return;
+        }
+        int from = random.nextInt(NUM_POS);
+        int to = random.nextInt(NUM_POS);
+        if(operator == MutationOperator.SWAP) {
+            grid.swap(from, to);
+        } else {
+            // INSERT: move the card at from to position to, shifting the cards in between
+            int card = grid.get(from);
+            int step = from < to ? 1 : -1;
+            for(int pos = from; pos != to; pos += step) {
+                grid.set(pos, grid.get(pos + step));
+            }
+            grid.set(to, card);
         }
-        return this;
     }
 
 //    Fisher–Yates algorithm
 //    https://stackoverflow.com/a/26920919/7529668
     public static Dna shuffle(Card[][] cards) {
-        Card[][] shuffledCards = new Card[cards[0].length][cards.length];
-        Random random = new Random();
+        return shuffle(cards, threadRandom.get());
+    }
 
-        for(int i = 0; i<cards.length; i++) {
-            System.arraycopy(cards[i], 0, shuffledCards[i],0, shuffledCards[i].length);
+    public static Dna shuffle(Card[][] cards, SplittableRandom random) {
+        PackedGrid shuffled = new PackedGrid(cards);
+        shuffle(shuffled, random);
+        return new Dna(shuffled);
+    }
+
+    private static void shuffle(PackedGrid grid, SplittableRandom random) {
+        for (int i = PokerSquares.SIZE - 1; i > 0; i--) {
+            for (int j = PokerSquares.SIZE - 1; j > 0; j--) {
+                int m = random.nextInt(i + 1);
+                int n = random.nextInt(j + 1);
+                grid.swap(i * PokerSquares.SIZE + j, m * PokerSquares.SIZE + n);
+            }
         }
+    }
 
-        for (int i = cards.length - 1; i > 0; i--) {
-            for (int j = cards[i].length - 1; j > 0; j--) {
+    public static Dna shuffleLimited(Card[][] cards) {
+        return shuffleLimited(cards, threadRandom.get());
+    }
+
+    public static Dna shuffleLimited(Card[][] cards, SplittableRandom random) {
+        PackedGrid shuffled = new PackedGrid(cards);
+        shuffleLimited(shuffled, random);
+        return new Dna(shuffled);
+    }
+
+    // Swaps between 2 and 24 positions, in the order of the full shuffle.
+    private static void shuffleLimited(PackedGrid grid, SplittableRandom random) {
+        int maxShuffledElementCount = random.nextInt(23) + 2;
+        int shuffledElementCount = 0;
+
+        for (int i = PokerSquares.SIZE - 1; i > 0; i--) {
+            for (int j = PokerSquares.SIZE - 1; j > 0; j--) {
+
+                if(shuffledElementCount >= maxShuffledElementCount) {
+                    return;
+                }
 
-//                shuffledCards[i][j] = cards[i][j];
                 int m = random.nextInt(i + 1);
                 int n = random.nextInt(j + 1);
+                grid.swap(i * PokerSquares.SIZE + j, m * PokerSquares.SIZE + n);
 
-                Card temp = shuffledCards[i][j];
-                shuffledCards[i][j] = shuffledCards[m][n];
-                shuffledCards[m][n] = temp;
-
-//                shuffledCards[i][j] = cards[m][n];
-//                shuffledCards[m][n] = cards[i][j];
+                shuffledElementCount++;
             }
         }
-        return new Dna(shuffledCards);
     }
 
-    public static Dna shuffleLimited(Card[][] cards) {
+    private static Dna legacyShuffleLimited(Card[][] cards) {
         Card[][] shuffledCards = new Card[cards[0].length][cards.length];
         Random random = new Random();
 
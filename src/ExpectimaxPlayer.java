@@ -0,0 +1,302 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ExpectimaxPlayer - a Poker Squares player that plays as a RandomMCPlayer until few empty positions remain, and then
+ * chooses plays by exact expectimax search.  Decision nodes choose the empty position for a drawn card; chance nodes
+ * average over all undealt cards, each equally likely to be drawn next.  Since every dealt card is placed, the
+ * expected final score of a position depends only on its grid, so chance node values are cached in a transposition
+ * table keyed by the canonical hash of the grid, which also merges grids equivalent under row/column permutation,
+ * transposition and suit relabeling.  Chance nodes are pruned (Star1) when even the best possible outcome of
+ * their remaining cards cannot raise their value above the best alternative of the parent decision node.
+ * If the exact search cannot finish within its time budget, the Monte Carlo play is used instead.
+ *
+ * The Monte Carlo phase is given the game time less a reserve for the exact phase, since its time budget allocates
+ * time as if it played all remaining moves.  The first exact play from five empty positions takes about 2 to 3
+ * seconds (about 1.8 million nodes in the British point system on one core); plays from four or fewer take
+ * milliseconds, and no time is reserved for them.  From six or more empty positions, the exact search cannot finish in
+ * a 30-second game and falls back to Monte Carlo play.
+ */
+public class ExpectimaxPlayer implements PokerSquaresPlayer {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of rows/columns in square grid
+	private static final int NUM_POS = SIZE * SIZE; // number of positions in square grid
+	private static final int NUM_LINES = 2 * SIZE; // number of scored rows and columns
+	private static final int TABLE_BITS = 21; // log2 of the number of transposition table entries
+	private static final int CHECK_INTERVAL = 1 << 12; // nodes between deadline checks
+	private static final long EXACT_RESERVE_MILLIS = 6000L; // game time reserved for an exact search from 5 empty positions
+	private static final int MAX_RESERVE_FRACTION = 4; // the reserve is at most 1/MAX_RESERVE_FRACTION of the game time
+	private static final int FALLBACK_FRACTION = 4; // the exact search leaves 1/FALLBACK_FRACTION of the remaining time for a fallback
+	private static final long[][] ZOBRIST = new long[NUM_POS][Card.NUM_CARDS]; // hash key of each card at each position
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x5EED);
+		for (long[] keys : ZOBRIST)
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = random.nextLong();
+	}
+
+	/**
+	 * Thrown (preallocated, without stack trace) to abandon a search that has run out of time.
+	 */
+	private static class TimeoutException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		TimeoutException() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final TimeoutException TIMEOUT = new TimeoutException();
+
+	private final RandomMCPlayer mcPlayer; // player used until the exact search threshold
+	private final int exactCells; // number of empty positions (including the current play) from which search is exact
+	private PokerSquaresPointSystem system; // point system
+	private int maxHandScore; // maximum hand score of point system
+	private final Card[][] grid = new Card[SIZE][SIZE]; // grid with Card objects or null (for empty positions)
+	private IncrementalScorer scorer; // search grid score
+	private final int[] lineCounts = new int[NUM_LINES]; // number of cards in each search grid line
+	private final Card[][] searchGrid = new Card[SIZE][SIZE]; // search grid with Card objects or null (for empty positions)
+	private long placedCards; // bit mask of card ids in search grid
+	private long hash; // (non-canonical) Zobrist hash of search grid
+	private final GridCanonicalizer canonicalizer = new GridCanonicalizer(); // canonical hashing of search grids
+	private final TranspositionTable table = new TranspositionTable(TABLE_BITS); // expected final scores of search grids
+	private long nodes; // nodes searched for current play
+	private long deadline; // System.currentTimeMillis() by which the current search must finish
+	private int numPlays; // number of cards played so far
+	private long reserveMillis; // game time reserved for the exact phase, set at the first play of each game
+
+	/**
+	 * Create an expectimax player that plays as a depth-2 RandomMCPlayer until 5 empty positions remain.
+	 */
+	public ExpectimaxPlayer() {
+		this(2, 5);
+	}
+
+	/**
+	 * Create an expectimax player that plays as a RandomMCPlayer with the given depth limit until the given number
+	 * of empty positions remain, and searches exactly from then on.
+	 * @param depthLimit depth limit for random simulated play
+	 * @param exactCells number of empty positions (including the current play) from which search is exact
+	 */
+	public ExpectimaxPlayer(int depthLimit, int exactCells) {
+		this.mcPlayer = new RandomMCPlayer(depthLimit);
+		this.exactCells = exactCells;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setPointSystem(PokerSquaresPointSystem, long)
+	 */
+	@Override
+	public void setPointSystem(PokerSquaresPointSystem system, long millis) {
+		this.system = system;
+		this.scorer = new IncrementalScorer(system);
+		maxHandScore = Integer.MIN_VALUE;
+		for (int points : system.getScoreTable())
+			maxHandScore = Math.max(maxHandScore, points);
+		table.clear(); // cached values are specific to the point system
+		mcPlayer.setPointSystem(system, millis);
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed) {
+		mcPlayer.setSeed(seed);
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#init()
+	 */
+	@Override
+	public void init() {
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				grid[row][col] = null;
+		numPlays = 0;
+		mcPlayer.init();
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#getPlay(Card, long)
+	 */
+	@Override
+	public int[] getPlay(Card card, long millisRemaining) {
+		long startTime = System.currentTimeMillis();
+		if (numPlays == 0)
+			reserveMillis = exactCells >= 5 ? Math.min(EXACT_RESERVE_MILLIS, millisRemaining / MAX_RESERVE_FRACTION) : 0;
+		int[] playPos = null;
+		boolean exact = NUM_POS - numPlays <= exactCells;
+		if (exact) {
+			// leave part of the remaining time for a Monte Carlo fallback
+			playPos = searchPlay(card, startTime + millisRemaining - millisRemaining / FALLBACK_FRACTION);
+			if (playPos != null)
+				mcPlayer.makePlay(card, playPos[0], playPos[1]);
+		}
+		if (playPos == null) // (the Monte Carlo phase leaves the reserve to the exact phase)
+			playPos = mcPlayer.getPlay(card, millisRemaining - (exact ? 0 : reserveMillis) - (System.currentTimeMillis() - startTime));
+		grid[playPos[0]][playPos[1]] = card;
+		numPlays++;
+		return playPos;
+	}
+
+	/**
+	 * Return the play maximizing the exact expected final score, or null if the search does not finish by the
+	 * given deadline or the thread is interrupted (the referee's cancellation of a move out of time).
+	 * @param card card to play
+	 * @param deadline System.currentTimeMillis() by which the search must finish
+	 * @return the chosen (row, col) position or null
+	 */
+	private int[] searchPlay(Card card, long deadline) {
+		// initialize search state from the current grid
+		scorer.clear();
+		Arrays.fill(lineCounts, 0);
+		for (Card[] row : searchGrid)
+			Arrays.fill(row, null);
+		placedCards = 0L;
+		hash = 0L;
+		for (int pos = 0; pos < NUM_POS; pos++)
+			if (grid[pos / SIZE][pos % SIZE] != null)
+				place(grid[pos / SIZE][pos % SIZE], pos);
+		this.deadline = deadline;
+		nodes = 0;
+
+		int bestPos = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		try {
+			for (int pos = 0; pos < NUM_POS; pos++) {
+				if (grid[pos / SIZE][pos % SIZE] != null)
+					continue;
+				place(card, pos);
+				double value = chanceValue(bestValue);
+				remove(card, pos);
+				if (value > bestValue) {
+					bestValue = value;
+					bestPos = pos;
+				}
+			}
+		} catch (TimeoutException e) {
+			return null;
+		}
+		return new int[] {bestPos / SIZE, bestPos % SIZE};
+	}
+
+	/**
+	 * Return the expected final score of the search grid before the next card is drawn.  If the value cannot exceed
+	 * alpha, an upper bound of the value no greater than alpha may be returned instead.
+	 * @param alpha value of the best alternative play at the parent decision node
+	 * @return the expected final score, or an upper bound no greater than alpha
+	 */
+	private double chanceValue(double alpha) {
+		int numCards = scorer.getNumCards();
+		if (numCards == NUM_POS)
+			return scorer.getScore();
+		if (++nodes % CHECK_INTERVAL == 0 && (System.currentTimeMillis() > deadline || Thread.currentThread().isInterrupted()))
+			throw TIMEOUT;
+		// Canonical hashing pays off where subtrees are large; the many positions with a single empty cell are keyed
+		// by their cheaper incremental Zobrist hash instead.
+		long key = numCards == NUM_POS - 1 ? hash : canonicalizer.hash(searchGrid);
+		int index = table.find(key);
+		if (index >= 0)
+			return table.getValue(index);
+
+		// best possible final score: scores of complete lines plus the maximum hand score for each incomplete line
+		double upper = 0;
+		for (int line = 0; line < NUM_LINES; line++)
+			upper += lineCounts[line] == SIZE ? scorer.getHandScore(line) : maxHandScore;
+		int numUndealt = Card.NUM_CARDS - numCards;
+		double sum = 0;
+		int numDrawn = 0;
+		for (int cardId = 0; cardId < Card.NUM_CARDS; cardId++) {
+			if ((placedCards & 1L << cardId) != 0)
+				continue;
+			sum += decisionValue(Card.getCard(cardId));
+			numDrawn++;
+			double bound = (sum + (numUndealt - numDrawn) * upper) / numUndealt;
+			if (bound <= alpha && numDrawn < numUndealt)
+				return bound; // Star1 cutoff: this chance node cannot beat the alternative
+		}
+		double value = sum / numUndealt;
+		table.put(key, value, numUndealt - (Card.NUM_CARDS - NUM_POS)); // weight: empty positions, i.e. cost to recompute
+		return value;
+	}
+
+	/**
+	 * Return the maximum expected final score over the empty positions of the search grid for the given card.
+	 * @param card drawn card
+	 * @return the maximum expected final score
+	 */
+	private double decisionValue(Card card) {
+		double best = Double.NEGATIVE_INFINITY;
+		for (int pos = 0; pos < NUM_POS; pos++) {
+			if (scorer.getCard(pos / SIZE, pos % SIZE) != null)
+				continue;
+			place(card, pos);
+			double value = chanceValue(best);
+			remove(card, pos);
+			if (value > best)
+				best = value;
+		}
+		return best;
+	}
+
+	/**
+	 * Place a card in the search grid.
+	 */
+	private void place(Card card, int pos) {
+		scorer.place(card, pos / SIZE, pos % SIZE);
+		lineCounts[pos / SIZE]++;
+		lineCounts[SIZE + pos % SIZE]++;
+		placedCards |= 1L << card.getCardId();
+		hash ^= ZOBRIST[pos][card.getCardId()];
+		searchGrid[pos / SIZE][pos % SIZE] = card;
+	}
+
+	/**
+	 * Remove a card from the search grid.
+	 */
+	private void remove(Card card, int pos) {
+		scorer.remove(pos / SIZE, pos % SIZE);
+		lineCounts[pos / SIZE]--;
+		lineCounts[SIZE + pos % SIZE]--;
+		placedCards &= ~(1L << card.getCardId());
+		hash ^= ZOBRIST[pos][card.getCardId()];
+		searchGrid[pos / SIZE][pos % SIZE] = null;
+	}
+
+	/**
+	 * Get the number of nodes searched for the most recent exact play.
+	 * @return the number of nodes searched for the most recent exact play
+	 */
+	public long getLastNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Get the transposition table (e.g. to report its hit, miss and eviction counters).
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#getName()
+	 */
+	@Override
+	public String getName() {
+		return "ExpectimaxPlayer";
+	}
+
+	/**
+	 * Demonstrate ExpectimaxPlayer play with Ameritish point system.
+	 * @param args (not used)
+	 */
+	public static void main(String[] args) {
+		PokerSquaresPointSystem system = PokerSquaresPointSystem.getAmeritishPointSystem();
+		System.out.println(system);
+		new PokerSquares(new ExpectimaxPlayer(), system).play(); // play a single game
+	}
+
+}
@@ -0,0 +1,177 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GameRecord - the record of one Poker Squares game: deal seed, player name, point system score table, the card
+ * and row-major position of each move with the milliseconds the player took, the hand classification
+ * identification numbers of rows 0 through 4 followed by columns 0 through 4, and the final score.  Games ended by
+ * an illegal play, a timeout or an exception record fewer than 25 moves.
+ *
+ * Binary encoding (big-endian): seed (long), player name length (short) and UTF-8 bytes, number of score table
+ * entries (byte) and each score (byte), number of moves (byte) and for each move its card id (byte), position
+ * (byte) and milliseconds (int), 10 hand ids (byte), and final score (int).
+ */
+public class GameRecord {
+
+	private static final int NUM_LINES = 2 * PokerSquares.SIZE; // number of scored rows and columns
+
+	private final long seed; // deal seed
+	private final String playerName; // player name
+	private final int[] scoreTable; // point system scores indexed by hand classification identification number
+	private final int numMoves; // number of moves made
+	private final byte[] cardIds; // card id of each move
+	private final byte[] positions; // row-major position of each move
+	private final int[] moveMillis; // milliseconds taken by the player for each move
+	private final byte[] handIds; // hand ids of rows 0 through 4 followed by columns 0 through 4
+	private final int score; // final score
+
+	/**
+	 * Create a game record.  The given arrays are not copied.
+	 * @param seed deal seed
+	 * @param playerName player name
+	 * @param scoreTable point system scores indexed by hand classification identification number
+	 * @param numMoves number of moves made
+	 * @param cardIds card id of each move
+	 * @param positions row-major position of each move
+	 * @param moveMillis milliseconds taken by the player for each move
+	 * @param handIds hand ids of rows 0 through 4 followed by columns 0 through 4
+	 * @param score final score
+	 */
+	public GameRecord(long seed, String playerName, int[] scoreTable, int numMoves, byte[] cardIds, byte[] positions,
+			int[] moveMillis, byte[] handIds, int score) {
+		this.seed = seed;
+		this.playerName = playerName;
+		this.scoreTable = scoreTable;
+		this.numMoves = numMoves;
+		this.cardIds = cardIds;
+		this.positions = positions;
+		this.moveMillis = moveMillis;
+		this.handIds = handIds;
+		this.score = score;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	public int[] getScoreTable() {
+		return scoreTable.clone();
+	}
+
+	public int getNumMoves() {
+		return numMoves;
+	}
+
+	/**
+	 * Get the card placed in the given move.
+	 * @param move move index in [0, getNumMoves() - 1]
+	 * @return the card placed in the given move
+	 */
+	public Card getCard(int move) {
+		return Card.getCard(cardIds[move]);
+	}
+
+	/**
+	 * Get the row-major position (row * SIZE + col) of the given move.
+	 * @param move move index in [0, getNumMoves() - 1]
+	 * @return the row-major position of the given move
+	 */
+	public int getPosition(int move) {
+		return positions[move];
+	}
+
+	/**
+	 * Get the milliseconds taken by the player for the given move.
+	 * @param move move index in [0, getNumMoves() - 1]
+	 * @return the milliseconds taken by the player for the given move
+	 */
+	public int getMoveMillis(int move) {
+		return moveMillis[move];
+	}
+
+	/**
+	 * Get the hand classification identification number of the given line (rows 0 through 4 followed by columns
+	 * 0 through 4) of the final grid.
+	 * @param line line index
+	 * @return the hand classification identification number of the given line
+	 */
+	public int getHandId(int line) {
+		return handIds[line];
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Return the final grid of placed cards.
+	 * @return 2D Card array representing the final play grid
+	 */
+	public Card[][] getGrid() {
+		Card[][] grid = new Card[PokerSquares.SIZE][PokerSquares.SIZE];
+		for (int move = 0; move < numMoves; move++)
+			grid[positions[move] / PokerSquares.SIZE][positions[move] % PokerSquares.SIZE] = getCard(move);
+		return grid;
+	}
+
+	/**
+	 * Return the number of bytes of the binary encoding of this record.
+	 * @return the number of bytes of the binary encoding of this record
+	 */
+	public int getEncodedLength() {
+		return 8 + 2 + playerName.getBytes(StandardCharsets.UTF_8).length + 1 + scoreTable.length + 1 + 6 * numMoves + NUM_LINES + 4;
+	}
+
+	/**
+	 * Write the binary encoding of this record to the given buffer.
+	 * @param buffer buffer with at least getEncodedLength() bytes remaining
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.putLong(seed);
+		byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) name.length);
+		buffer.put(name);
+		buffer.put((byte) scoreTable.length);
+		for (int points : scoreTable)
+			buffer.put((byte) points);
+		buffer.put((byte) numMoves);
+		for (int move = 0; move < numMoves; move++) {
+			buffer.put(cardIds[move]);
+			buffer.put(positions[move]);
+			buffer.putInt(moveMillis[move]);
+		}
+		buffer.put(handIds, 0, NUM_LINES);
+		buffer.putInt(score);
+	}
+
+	/**
+	 * Read a record from its binary encoding in the given buffer.
+	 * @param buffer buffer positioned at the start of an encoded record
+	 * @return the decoded record
+	 */
+	public static GameRecord readFrom(ByteBuffer buffer) {
+		long seed = buffer.getLong();
+		byte[] name = new byte[buffer.getShort()];
+		buffer.get(name);
+		int[] scoreTable = new int[buffer.get()];
+		for (int i = 0; i < scoreTable.length; i++)
+			scoreTable[i] = buffer.get();
+		int numMoves = buffer.get();
+		byte[] cardIds = new byte[numMoves];
+		byte[] positions = new byte[numMoves];
+		int[] moveMillis = new int[numMoves];
+		for (int move = 0; move < numMoves; move++) {
+			cardIds[move] = buffer.get();
+			positions[move] = buffer.get();
+			moveMillis[move] = buffer.getInt();
+		}
+		byte[] handIds = new byte[NUM_LINES];
+		buffer.get(handIds);
+		int score = buffer.getInt();
+		return new GameRecord(seed, new String(name, StandardCharsets.UTF_8), scoreTable, numMoves, cardIds, positions, moveMillis, handIds, score);
+	}
+}
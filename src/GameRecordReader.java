@@ -0,0 +1,110 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GameRecordReader - streams the GameRecords of a file written by GameRecordWriter one at a time through a buffered
+ * NIO channel, so that files of any size can be analyzed in constant memory.
+ */
+public class GameRecordReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16; // bytes read from the channel at a time
+
+	private final FileChannel channel; // input file channel
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // unread input (between position and limit)
+
+	/**
+	 * Create a reader of the given file.
+	 * @param path input file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public GameRecordReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		buffer.limit(0);
+	}
+
+	/**
+	 * Read the next record.
+	 * @return the next record, or null at the end of the file
+	 * @throws IOException if reading fails or the file ends within a record
+	 */
+	public GameRecord read() throws IOException {
+		if (!fill(4))
+			return null;
+		int length = buffer.getInt();
+		if (!fill(length))
+			throw new EOFException("Truncated game record");
+		int end = buffer.position() + length;
+		GameRecord record = GameRecord.readFrom(buffer);
+		buffer.position(end);
+		return record;
+	}
+
+	/**
+	 * Ensure that at least the given number of bytes are buffered.
+	 * @return false if the file ends first
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return true;
+		if (buffer.capacity() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+			larger.put(buffer);
+			buffer = larger;
+		}
+		else
+			buffer.compact();
+		while (buffer.position() < bytes)
+			if (channel.read(buffer) < 0)
+				break;
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Summarize the games of a record file by player: number of games, mean score and mean milliseconds per move.
+	 * @param args record file name
+	 * @throws IOException if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, long[]> totals = new LinkedHashMap<String, long[]>(); // player name -> {games, score total, moves, millis total}
+		GameRecordReader reader = new GameRecordReader(Paths.get(args[0]));
+		try {
+			GameRecord record;
+			while ((record = reader.read()) != null) {
+				long[] total = totals.get(record.getPlayerName());
+				if (total == null)
+					totals.put(record.getPlayerName(), total = new long[4]);
+				total[0]++;
+				total[1] += record.getScore();
+				total[2] += record.getNumMoves();
+				for (int move = 0; move < record.getNumMoves(); move++)
+					total[3] += record.getMoveMillis(move);
+			}
+		}
+		finally {
+			reader.close();
+		}
+		System.out.printf("%20s %10s %12s %14s\n", "Player", "Games", "Mean Score", "Millis/Move");
+		for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+			long[] total = entry.getValue();
+			System.out.printf("%20s %10d %12.3f %14.3f\n", entry.getKey(), total[0], (double) total[1] / total[0],
+					total[2] == 0 ? 0.0 : (double) total[3] / total[2]);
+		}
+	}
+}
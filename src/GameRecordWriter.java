@@ -0,0 +1,69 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GameRecordWriter - a GameResultSink writing length-prefixed binary GameRecords to a file through a buffered
+ * NIO channel.  Each record is written as its encoded length (int) followed by its encoding (see GameRecord).
+ * Records may be written from several threads.
+ */
+public class GameRecordWriter implements GameResultSink, Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16; // bytes buffered before writing to the channel
+
+	private final FileChannel channel; // output file channel
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // pending output
+
+	/**
+	 * Create a writer to the given file, replacing any existing file (or appending to it if requested).
+	 * @param path output file
+	 * @param append whether to append to an existing file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public GameRecordWriter(Path path, boolean append) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/* (non-Javadoc)
+	 * @see GameResultSink#accept(GameRecord)
+	 */
+	@Override
+	public synchronized void accept(GameRecord record) throws IOException {
+		int length = record.getEncodedLength();
+		if (buffer.remaining() < 4 + length) {
+			flush();
+			if (buffer.capacity() < 4 + length)
+				buffer = ByteBuffer.allocateDirect(4 + length);
+		}
+		buffer.putInt(length);
+		record.writeTo(buffer);
+	}
+
+	/**
+	 * Write all buffered records to the file.
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+}
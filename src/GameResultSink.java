@@ -0,0 +1,16 @@
+import java.io.IOException;
+
+/**
+ * GameResultSink - a destination for the records of completed Poker Squares games.
+ * Sinks passed to PokerSquares.playTournament with parallel play must accept records from several threads.
+ */
+public interface GameResultSink {
+
+	/**
+	 * accept - consumes the record of a completed game.
+	 * @param record - record of a completed game
+	 * @throws IOException if the record cannot be stored
+	 */
+	void accept(GameRecord record) throws IOException;
+
+}
@@ -0,0 +1,147 @@
+/**
+ * GameStatistics - Streaming summary of game scores: count, mean, standard deviation, minimum, maximum and a
+ * histogram with one bucket per score.  Scores are added one at a time, and summaries computed on separate threads
+ * may be merged.  Memory use is independent of the number of games.
+ */
+public class GameStatistics {
+
+	private final int minScore; // lowest score with a histogram bucket
+	private final long[] histogram; // game counts indexed by score - minScore
+	private long count; // number of games
+	private double mean; // running mean score
+	private double m2; // running sum of squared deviations from the mean (Welford)
+	private int min = Integer.MAX_VALUE; // minimum score
+	private int max = Integer.MIN_VALUE; // maximum score
+
+	/**
+	 * Create empty statistics for scores of the given point system.  Histogram buckets cover all scores from ten
+	 * times the minimum to ten times the maximum hand score.
+	 * @param system point system
+	 */
+	public GameStatistics(PokerSquaresPointSystem system) {
+		int minHand = Integer.MAX_VALUE, maxHand = Integer.MIN_VALUE;
+		for (int score : system.getScoreTable()) {
+			minHand = Math.min(minHand, score);
+			maxHand = Math.max(maxHand, score);
+		}
+		minScore = 10 * minHand;
+		histogram = new long[10 * (maxHand - minHand) + 1];
+	}
+
+	/**
+	 * Add a game score.
+	 * @param score game score
+	 */
+	public void add(int score) {
+		count++;
+		double delta = score - mean;
+		mean += delta / count;
+		m2 += delta * (score - mean);
+		if (score < min) min = score;
+		if (score > max) max = score;
+		histogram[score - minScore]++;
+	}
+
+	/**
+	 * Add all games of the given statistics (of the same point system) to these statistics.
+	 * @param other statistics to merge
+	 */
+	public void merge(GameStatistics other) {
+		if (other.count == 0)
+			return;
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / total;
+		m2 += other.m2 + delta * delta * count * other.count / total;
+		count = total;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		for (int i = 0; i < histogram.length; i++)
+			histogram[i] += other.histogram[i];
+	}
+
+	/**
+	 * Get the number of games.
+	 * @return the number of games
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the mean score.
+	 * @return the mean score
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Get the (population) standard deviation of scores, as reported by PokerSquares.playSequence.
+	 * @return the standard deviation of scores
+	 */
+	public double getStdDev() {
+		return count == 0 ? 0 : Math.sqrt(m2 / count);
+	}
+
+	/**
+	 * Get the minimum score.
+	 * @return the minimum score
+	 */
+	public int getMin() {
+		return min;
+	}
+
+	/**
+	 * Get the maximum score.
+	 * @return the maximum score
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the number of games with the given score.
+	 * @param score game score
+	 * @return the number of games with the given score
+	 */
+	public long getCount(int score) {
+		int i = score - minScore;
+		return i < 0 || i >= histogram.length ? 0 : histogram[i];
+	}
+
+	/**
+	 * Return a text histogram of scores grouped into buckets of the given width.
+	 * @param bucketWidth number of consecutive scores per bucket
+	 * @return a text histogram of scores
+	 */
+	public String histogramToString(int bucketWidth) {
+		StringBuilder sb = new StringBuilder();
+		if (count == 0)
+			return "";
+		long maxBucket = 1;
+		for (int lo = min; lo <= max; lo += bucketWidth) {
+			long bucket = 0;
+			for (int score = lo; score < lo + bucketWidth; score++)
+				bucket += getCount(score);
+			maxBucket = Math.max(maxBucket, bucket);
+		}
+		for (int lo = min; lo <= max; lo += bucketWidth) {
+			long bucket = 0;
+			for (int score = lo; score < lo + bucketWidth; score++)
+				bucket += getCount(score);
+			StringBuilder bar = new StringBuilder();
+			for (long i = 0, n = 50 * bucket / maxBucket; i < n; i++)
+				bar.append('#');
+			sb.append(String.format("%5d..%-5d %10d %s\n", lo, lo + bucketWidth - 1, bucket, bar));
+		}
+		return sb.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("Games: %d, Score Mean: %f, Standard Deviation: %f, Minimum: %d, Maximum: %d", count, mean, getStdDev(), min, max);
+	}
+}
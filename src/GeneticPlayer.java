@@ -7,7 +7,10 @@ import java.util.*;
  */
 public class GeneticPlayer implements PokerSquaresPlayer {
 
-    private final int SIZE = 5; // number of rows/columns in square grid
+    private static final int SIZE = 5; // number of rows/columns in square grid
+    // best score of the game's plan after each generation (each migration epoch with islands), across all islands;
+    // games played concurrently append to the same series, so read it from one game at a time
+    private static final Metrics.Series BEST_SCORE = Metrics.series("GeneticPlayer.bestScore", 4096);
     private Card[][] grid = new Card[SIZE][SIZE]; // grid with Card objects or null (for empty positions)
     private boolean isFirstTime = true;
     private int generations = 0;
@@ -16,9 +19,37 @@ public class GeneticPlayer implements PokerSquaresPlayer {
     private Card[][] bestChild;
     private int bestScore = 0;
     private int bestGeneration = 0;
+    private int islandCount = 1;
+    private int migrationInterval = 50;
+    private int migrantCount = 5;
+    private DeckView deckView;
+    private long seed = new SplittableRandom().nextLong();
+    // The whole game is planned on the first play, so it gets all of the time less the safety margin.
+    private final TimeBudget timeBudget = new TimeBudget(firstPlayWeights(), TimeBudget.DEFAULT_SAFETY_MILLIS,
+            TimeBudget.DEFAULT_SAFETY_FRACTION, 1, 0, 1);
 
     private static boolean verboseLogging = false;
 
+    public GeneticPlayer() {
+    }
+
+    private static double[] firstPlayWeights() {
+        double[] weights = new double[SIZE * SIZE];
+        weights[0] = 1;
+        return weights;
+    }
+
+    /**
+     * Create a genetic player evolving islandCount populations concurrently, exchanging the fittest migrantCount
+     * individuals between neighboring islands every migrationInterval generations.  Islands evolve on the shared
+     * PlayerExecutor, so the player holds no threads between games.
+     */
+    public GeneticPlayer(int islandCount, int migrationInterval, int migrantCount) {
+        this.islandCount = islandCount;
+        this.migrationInterval = migrationInterval;
+        this.migrantCount = migrantCount;
+    }
+
     /* (non-Javadoc)
      * @see PokerSquaresPlayer#setPointSystem(PokerSquaresPointSystem, long)
      */
@@ -48,23 +79,37 @@ public class GeneticPlayer implements PokerSquaresPlayer {
         bestGeneration = 0;
     }
 
+    /* (non-Javadoc)
+     * @see PokerSquaresPlayer#setSeed(long)
+     */
     @Override
-    public int[] getPlay(Card card, long millisRemaining) {
-        return new int[0];
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /* (non-Javadoc)
+     * @see PokerSquaresPlayer#setDeckView(DeckView)
+     */
+    @Override
+    public void setDeckView(DeckView deck) {
+        // The GeneticPlayer evolves the placement of the whole known deal on the first play.
+        this.deckView = deck;
     }
 
     /* (non-Javadoc)
      * @see PokerSquaresPlayer#getPlay(Card, long)
      */
-    public int[] getPlay(Card card, long millisRemaining, Stack<Card> deck) {
+    @Override
+    public int[] getPlay(Card card, long millisRemaining) {
 
         long startMillis = System.currentTimeMillis();
 
         if(isFirstTime) {
             isFirstTime = false;
-
-            Stack<Card> copiedDeck = new Stack<Card>();
-            copiedDeck.addAll(deck);
+            long allocationMillis = timeBudget.startMove(millisRemaining, 0);
+            if(deckView == null) {
+                throw new IllegalStateException("GeneticPlayer requires a deck view");
+            }
 
             Card[][] cards = new Card[SIZE][SIZE];
             cards[0][0] = card;
@@ -73,14 +118,20 @@ public class GeneticPlayer implements PokerSquaresPlayer {
                    if(i == 0 && j == 0) {
                        continue;
                    }
-                   cards[i][j] = copiedDeck.pop();
+                   cards[i][j] = deckView.getCard(i * SIZE + j - 1);
                 }
             }
 
 
-            Population population = new Population(500, 0.15f, cards);
+            if(islandCount > 1) {
+                evolveIslands(cards, startMillis + allocationMillis);
+                int rowMajorPos = bestChildMap.get(card);
+                return new int[]{rowMajorPos / 5, rowMajorPos % 5};
+            }
+
+            Population population = new Population(500, 0.15f, cards, seed);
 
-            while(System.currentTimeMillis() - startMillis < 25 * 1000) {
+            while(!timeBudget.isExpired()) {
                 generations++;
 
                 population.calculateFitness(pokerSquaresPointSystem);
@@ -95,11 +146,12 @@ public class GeneticPlayer implements PokerSquaresPlayer {
 
                 if(bestScore < score) {
                     bestScore = score;
-                    bestChild = population.getChild(index);
+                    bestChild = population.getChild(index).toCards();
                     bestGeneration = generations;
                     saveBestChild(bestChild);
 
                 }
+                BEST_SCORE.record(bestScore);
                 if(score <= bestScore && generations % 500 == 0) {
                     float newMutation = population.getMutationRate() * 1.25f;
                     if(newMutation > 0.8) {
@@ -122,6 +174,30 @@ public class GeneticPlayer implements PokerSquaresPlayer {
     }
 
 
+    private void evolveIslands(Card[][] cards, long deadlineMillis) {
+        IslandModel islands = new IslandModel(islandCount, 500, 0.15f, cards, migrationInterval, migrantCount, PlayerExecutor.getShared(), seed);
+        while(System.currentTimeMillis() < deadlineMillis) {
+            islands.evolve(pokerSquaresPointSystem, deadlineMillis);
+            generations = islands.getGenerations();
+
+            if(verboseLogging) {
+                System.out.println("Generation: " + generations + ": " + islands.getBestScore());
+            }
+
+            if(bestChild == null || bestScore < islands.getBestScore()) {
+                bestScore = islands.getBestScore();
+                bestChild = islands.getBestChild();
+                bestGeneration = generations;
+                saveBestChild(bestChild);
+            }
+            BEST_SCORE.record(bestScore);
+        }
+
+        if(verboseLogging) {
+            System.out.println("Best generation: " + bestGeneration + ": " + bestScore);
+        }
+    }
+
     private void saveBestChild(Card[][] child) {
         bestChildMap.clear();
         for(int i = 0; i < PokerSquares.SIZE; i++) {
@@ -131,12 +207,20 @@ public class GeneticPlayer implements PokerSquaresPlayer {
         }
     }
 
+    /* (non-Javadoc)
+     * @see PokerSquaresPlayer#getNumThreads()
+     */
+    @Override
+    public int getNumThreads() {
+        return islandCount;
+    }
+
     /* (non-Javadoc)
      * @see PokerSquaresPlayer#getName()
      */
     @Override
     public String getName() {
-        return "GeneticPlayer";
+        return islandCount > 1 ? "GeneticIslands" + islandCount : "GeneticPlayer";
     }
 
     /**
@@ -0,0 +1,115 @@
+import java.util.SplittableRandom;
+
+/**
+ * GridCanonicalizer - computes a 64-bit Zobrist hash of a canonical form of a Poker Squares grid, so that grids
+ * equivalent under symmetries of the game share a key.  Permuting rows, permuting columns, transposing and
+ * relabeling suits change no hand classification of any row or column, and map the remaining deck (the complement
+ * of the placed cards) to the correspondingly relabeled deck, so equivalent grids have equal scores and equal
+ * expected final scores.
+ *
+ * The canonical form sorts rows and columns by suit-independent line signatures (card count and rank multiset),
+ * transposes if the column signatures are larger than the row signatures, and then numbers suits in order of first
+ * appearance in row-major order.  Lines with equal signatures keep their relative order, so some equivalent grids
+ * may still receive different keys (costing only cache hits), but grids with equal keys are always equivalent
+ * (up to hash collisions).  A canonicalizer holds scratch arrays and is not thread-safe.
+ */
+public class GridCanonicalizer {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of rows/columns in square grid
+	private static final int EMPTY = PackedGrid.EMPTY; // card id of empty positions
+	private static final long[][] ZOBRIST = new long[SIZE * SIZE][Card.NUM_CARDS]; // hash key of each card at each position
+
+	static {
+		SplittableRandom random = new SplittableRandom(0xC4A0);
+		for (long[] keys : ZOBRIST)
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = random.nextLong();
+	}
+
+	private final int[] cells = new int[SIZE * SIZE]; // card ids of the grid in row-major order
+	private final long[] rowKeys = new long[SIZE]; // signature of each row
+	private final long[] colKeys = new long[SIZE]; // signature of each column
+	private final int[] rowOrder = new int[SIZE]; // rows in canonical order
+	private final int[] colOrder = new int[SIZE]; // columns in canonical order
+	private final int[] suitLabels = new int[Card.NUM_SUITS]; // canonical label of each suit, or -1
+
+	/**
+	 * Return the canonical hash of the given grid.
+	 * @param grid 2D Card array representing play grid (null for empty positions)
+	 * @return the canonical hash of the given grid
+	 */
+	public long hash(Card[][] grid) {
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				cells[row * SIZE + col] = grid[row][col] == null ? EMPTY : grid[row][col].getCardId();
+		return canonicalHash();
+	}
+
+	/**
+	 * Return the canonical hash of the given packed grid.
+	 * @param grid packed play grid
+	 * @return the canonical hash of the given grid
+	 */
+	public long hash(PackedGrid grid) {
+		for (int pos = 0; pos < SIZE * SIZE; pos++)
+			cells[pos] = grid.get(pos);
+		return canonicalHash();
+	}
+
+	/**
+	 * Return the canonical hash of the grid in cells.
+	 */
+	private long canonicalHash() {
+		for (int i = 0; i < SIZE; i++) {
+			rowKeys[i] = 0;
+			colKeys[i] = 0;
+		}
+		for (int pos = 0; pos < SIZE * SIZE; pos++) {
+			int cardId = cells[pos];
+			if (cardId == EMPTY)
+				continue;
+			// count in bits 40+ and rank multiset as 13 3-bit rank counts
+			long signature = 1L << 40 | 1L << 3 * (cardId % Card.NUM_RANKS);
+			rowKeys[pos / SIZE] += signature;
+			colKeys[pos % SIZE] += signature;
+		}
+		sortDescending(rowKeys, rowOrder);
+		sortDescending(colKeys, colOrder);
+		boolean transpose = false;
+		for (int i = 0; i < SIZE; i++)
+			if (rowKeys[rowOrder[i]] != colKeys[colOrder[i]]) {
+				transpose = colKeys[colOrder[i]] > rowKeys[rowOrder[i]];
+				break;
+			}
+
+		for (int suit = 0; suit < Card.NUM_SUITS; suit++)
+			suitLabels[suit] = -1;
+		int numLabels = 0;
+		long hash = 0;
+		for (int i = 0; i < SIZE; i++)
+			for (int j = 0; j < SIZE; j++) {
+				int cardId = transpose ? cells[rowOrder[j] * SIZE + colOrder[i]] : cells[rowOrder[i] * SIZE + colOrder[j]];
+				if (cardId == EMPTY)
+					continue;
+				int suit = cardId / Card.NUM_RANKS;
+				if (suitLabels[suit] < 0)
+					suitLabels[suit] = numLabels++;
+				hash ^= ZOBRIST[i * SIZE + j][suitLabels[suit] * Card.NUM_RANKS + cardId % Card.NUM_RANKS];
+			}
+		return hash;
+	}
+
+	/**
+	 * Fill order with the indices of keys in descending key order (stable).
+	 */
+	private static void sortDescending(long[] keys, int[] order) {
+		for (int i = 0; i < order.length; i++) {
+			int j = i;
+			while (j > 0 && keys[order[j - 1]] < keys[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+	}
+}
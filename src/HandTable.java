@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HandTable - classification of complete five-card hands by a single read from a precomputed table of the hand
+ * classification identification numbers of all C(52, 5) = 2,598,960 hands.  The table is a file of one byte per
+ * hand, indexed by the combinatorial (colexicographic) rank of the hand's ascending card identification numbers
+ * c0 &lt; c1 &lt; c2 &lt; c3 &lt; c4: C(c0, 1) + C(c1, 2) + C(c2, 3) + C(c3, 4) + C(c4, 5).  Tables are written by
+ * {@link #write(Path)} from {@link PokerHand#getPokerHand(Card[])} and memory-mapped read-only by
+ * {@link #load(Path)}, so that loading costs no parsing.
+ *
+ * Usage: java HandTable [-write] [file]  (writes the file if requested or absent, then loads and verifies it)
+ */
+public final class HandTable {
+
+	public static final int NUM_HANDS = 2598960; // number of five-card hands
+	public static final String DEFAULT_FILE = "handtable.bin"; // default table file name
+	private static final int HAND_SIZE = PokerSquares.SIZE; // number of cards in a hand
+	private static final int[][] BINOMIAL = new int[HAND_SIZE + 1][Card.NUM_CARDS]; // [k][n]: C(n, k)
+
+	static {
+		for (int n = 0; n < Card.NUM_CARDS; n++) {
+			BINOMIAL[0][n] = 1;
+			for (int k = 1; k <= HAND_SIZE; k++)
+				BINOMIAL[k][n] = n == 0 ? 0 : BINOMIAL[k][n - 1] + BINOMIAL[k - 1][n - 1];
+		}
+	}
+
+	private final ByteBuffer table; // hand ids indexed by combinatorial rank
+
+	/**
+	 * Create a hand table reading the given buffer of NUM_HANDS hand ids.
+	 */
+	private HandTable(ByteBuffer table) {
+		this.table = table;
+	}
+
+	/**
+	 * Memory-map the table file at the given path.
+	 * @param path table file path
+	 * @return the hand table
+	 * @throws IOException if the file cannot be mapped or has the wrong size
+	 */
+	public static HandTable load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() != NUM_HANDS)
+				throw new IOException("Hand table " + path + " has " + channel.size() + " bytes, expected " + NUM_HANDS);
+			return new HandTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, NUM_HANDS));
+		}
+	}
+
+	/**
+	 * Memory-map the table file DEFAULT_FILE of the working directory, if present, and install it in
+	 * {@link PokerSquaresPointSystem}.
+	 * @return whether a table was installed
+	 */
+	public static boolean installDefault() {
+		Path path = Paths.get(DEFAULT_FILE);
+		if (!Files.isRegularFile(path))
+			return false;
+		try {
+			PokerSquaresPointSystem.setHandTable(load(path));
+			return true;
+		}
+		catch (IOException e) {
+			System.err.println("Hand table not installed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Classify every five-card hand with {@link PokerHand#getPokerHand(Card[])} and write the table file.
+	 * @param path table file path
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path) throws IOException {
+		byte[] handIds = new byte[NUM_HANDS];
+		Card[] deck = Card.getAllCards();
+		Card[] hand = new Card[HAND_SIZE];
+		for (int c4 = 4; c4 < Card.NUM_CARDS; c4++)
+			for (int c3 = 3; c3 < c4; c3++)
+				for (int c2 = 2; c2 < c3; c2++)
+					for (int c1 = 1; c1 < c2; c1++)
+						for (int c0 = 0; c0 < c1; c0++) {
+							hand[0] = deck[c0];
+							hand[1] = deck[c1];
+							hand[2] = deck[c2];
+							hand[3] = deck[c3];
+							hand[4] = deck[c4];
+							handIds[rank(c0, c1, c2, c3, c4)] = (byte) PokerHand.getPokerHand(hand).id;
+						}
+		Files.write(path, handIds);
+	}
+
+	/**
+	 * Return the combinatorial rank of the given ascending card ids.
+	 */
+	private static int rank(int c0, int c1, int c2, int c3, int c4) {
+		return BINOMIAL[1][c0] + BINOMIAL[2][c1] + BINOMIAL[3][c2] + BINOMIAL[4][c3] + BINOMIAL[5][c4];
+	}
+
+	/**
+	 * Return the table index of the hand of the given distinct card identification numbers (in any order).
+	 * @return the combinatorial rank of the hand
+	 */
+	public static int getIndex(int id0, int id1, int id2, int id3, int id4) {
+		int t; // sorting network of 9 branch-free comparators
+		t = Math.min(id0, id1); id1 = Math.max(id0, id1); id0 = t;
+		t = Math.min(id3, id4); id4 = Math.max(id3, id4); id3 = t;
+		t = Math.min(id2, id4); id4 = Math.max(id2, id4); id2 = t;
+		t = Math.min(id2, id3); id3 = Math.max(id2, id3); id2 = t;
+		t = Math.min(id0, id3); id3 = Math.max(id0, id3); id0 = t;
+		t = Math.min(id0, id2); id2 = Math.max(id0, id2); id0 = t;
+		t = Math.min(id1, id4); id4 = Math.max(id1, id4); id1 = t;
+		t = Math.min(id1, id3); id3 = Math.max(id1, id3); id1 = t;
+		t = Math.min(id1, id2); id2 = Math.max(id1, id2); id1 = t;
+		return rank(id0, id1, id2, id3, id4);
+	}
+
+	/**
+	 * Classify the complete five-card hand of the given distinct card identification numbers.
+	 * @return classification identification number of the given Poker hand
+	 */
+	public int getPokerHandId(int id0, int id1, int id2, int id3, int id4) {
+		return table.get(getIndex(id0, id1, id2, id3, id4));
+	}
+
+	/**
+	 * Classify the complete five-card hand of the given distinct (non-null) cards.
+	 * @return classification identification number of the given Poker hand
+	 */
+	public int getPokerHandId(Card c0, Card c1, Card c2, Card c3, Card c4) {
+		return table.get(getIndex(c0.getCardId(), c1.getCardId(), c2.getCardId(), c3.getCardId(), c4.getCardId()));
+	}
+
+	/**
+	 * Verify every table entry against {@link PokerHandClassifier}, the classifier in use without a table.
+	 * @return the number of hands verified
+	 * @throws IllegalStateException at the first mismatch
+	 */
+	public long verify() {
+		long checked = 0;
+		for (int c4 = 4; c4 < Card.NUM_CARDS; c4++)
+			for (int c3 = 3; c3 < c4; c3++)
+				for (int c2 = 2; c2 < c3; c2++)
+					for (int c1 = 1; c1 < c2; c1++)
+						for (int c0 = 0; c0 < c1; c0++) {
+							int expected = PokerHandClassifier.getPokerHandId(c0, c1, c2, c3, c4);
+							if (getPokerHandId(c4, c2, c0, c3, c1) != expected) // (unsorted, to exercise the sort)
+								throw new IllegalStateException(String.format("Hand table mismatch for card ids %d %d %d %d %d", c0, c1, c2, c3, c4));
+							checked++;
+						}
+		return checked;
+	}
+
+	/**
+	 * Write the table file if requested or absent, then load and verify it.
+	 * @param args [-write] [file]
+	 * @throws IOException if the file cannot be written or loaded
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean write = false;
+		Path path = Paths.get(DEFAULT_FILE);
+		for (String arg : args) {
+			if (arg.equals("-write"))
+				write = true;
+			else
+				path = Paths.get(arg);
+		}
+		if (write || !Files.exists(path)) {
+			long start = System.nanoTime();
+			write(path);
+			System.out.printf("Wrote %s in %.3f s%n", path, (System.nanoTime() - start) / 1e9);
+		}
+		long start = System.nanoTime();
+		HandTable table = load(path);
+		System.out.printf("Loaded %s in %.3f ms%n", path, (System.nanoTime() - start) / 1e6);
+		start = System.nanoTime();
+		long checked = table.verify();
+		System.out.printf("Verified %d hands in %.3f s%n", checked, (System.nanoTime() - start) / 1e9);
+	}
+}
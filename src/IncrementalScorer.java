@@ -0,0 +1,261 @@
+/**
+ * IncrementalScorer - Running score of a Poker Squares grid under a given point system.
+ * Per-row and per-column rank and suit counters are kept so that placing or removing a card only reclassifies
+ * the one row and one column through that cell.  Lines are numbered as in
+ * {@link PokerSquaresPointSystem#getHandScores(Card[][])}: rows 0 through 4 followed by columns 0 through 4.
+ * The total always equals {@link PokerSquaresPointSystem#getScore(Card[][])} of the grid of placed cards.
+ */
+public class IncrementalScorer {
+
+	private static final int SIZE = PokerSquares.SIZE; // Poker Squares number of rows/columns
+	private static final int NUM_LINES = 2 * SIZE; // number of scored rows and columns
+
+	private PokerSquaresPointSystem system; // point system
+	private int[] scores; // point system score table indexed by hand classification identification number
+	private final Card[][] grid = new Card[SIZE][SIZE]; // placed cards or null (for empty positions)
+	private final int[] rankCounts = new int[NUM_LINES * Card.NUM_RANKS]; // rank counts indexed by line * NUM_RANKS + rank
+	private final int[] suitCounts = new int[NUM_LINES * Card.NUM_SUITS]; // suit counts indexed by line * NUM_SUITS + suit
+	private final int[] cardCounts = new int[NUM_LINES]; // number of cards in each line
+	private final int[][] rankMasks = new int[Card.NUM_SUITS + 1][NUM_LINES]; // [k][line]: bit r set if rank r occurs at least k times
+	private final int[] handIds = new int[NUM_LINES]; // current hand classification of each line
+	private int totalScore; // sum of the scores of all lines
+	private int numCards; // number of cards placed
+
+	/**
+	 * Create an empty incremental scorer for the given point system.
+	 * @param system point system
+	 */
+	public IncrementalScorer(PokerSquaresPointSystem system) {
+		setPointSystem(system);
+	}
+
+	/**
+	 * Create an incremental scorer for the given point system initialized with the cards of the given grid.
+	 * @param system point system
+	 * @param grid 2D Card array representing play grid (null for empty positions)
+	 */
+	public IncrementalScorer(PokerSquaresPointSystem system, Card[][] grid) {
+		this(system);
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				if (grid[row][col] != null)
+					place(grid[row][col], row, col);
+	}
+
+	/**
+	 * Set the point system, rescoring all lines of the current grid.
+	 * @param system point system
+	 */
+	public void setPointSystem(PokerSquaresPointSystem system) {
+		this.system = system;
+		this.scores = system.getScoreTable();
+		totalScore = 0;
+		for (int line = 0; line < NUM_LINES; line++) {
+			handIds[line] = classify(line);
+			totalScore += scores[handIds[line]];
+		}
+	}
+
+	/**
+	 * Get the point system.
+	 * @return point system
+	 */
+	public PokerSquaresPointSystem getPointSystem() {
+		return system;
+	}
+
+	/**
+	 * Overwrite this scorer with the point system, cards and counters of the given scorer.
+	 * @param other scorer to copy
+	 */
+	public void copyFrom(IncrementalScorer other) {
+		system = other.system;
+		scores = other.scores;
+		for (int row = 0; row < SIZE; row++)
+			System.arraycopy(other.grid[row], 0, grid[row], 0, SIZE);
+		System.arraycopy(other.rankCounts, 0, rankCounts, 0, rankCounts.length);
+		System.arraycopy(other.suitCounts, 0, suitCounts, 0, suitCounts.length);
+		System.arraycopy(other.cardCounts, 0, cardCounts, 0, cardCounts.length);
+		for (int k = 0; k < rankMasks.length; k++)
+			System.arraycopy(other.rankMasks[k], 0, rankMasks[k], 0, NUM_LINES);
+		System.arraycopy(other.handIds, 0, handIds, 0, handIds.length);
+		totalScore = other.totalScore;
+		numCards = other.numCards;
+	}
+
+	/**
+	 * Remove all cards.
+	 */
+	public void clear() {
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				grid[row][col] = null;
+		java.util.Arrays.fill(rankCounts, 0);
+		java.util.Arrays.fill(suitCounts, 0);
+		java.util.Arrays.fill(cardCounts, 0);
+		for (int[] masks : rankMasks)
+			java.util.Arrays.fill(masks, 0);
+		numCards = 0;
+		setPointSystem(system);
+	}
+
+	/**
+	 * Place a card in the given empty position and update the running score.
+	 * @param card card to place
+	 * @param row row of the position
+	 * @param col column of the position
+	 */
+	public void place(Card card, int row, int col) {
+		if (grid[row][col] != null)
+			throw new IllegalStateException("Position (" + row + ", " + col + ") is already occupied.");
+		grid[row][col] = card;
+		numCards++;
+		add(row, card, 1);
+		add(SIZE + col, card, 1);
+	}
+
+	/**
+	 * Remove the card at the given position and update the running score.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @return the removed card
+	 */
+	public Card remove(int row, int col) {
+		Card card = grid[row][col];
+		if (card == null)
+			throw new IllegalStateException("Position (" + row + ", " + col + ") is empty.");
+		grid[row][col] = null;
+		numCards--;
+		add(row, card, -1);
+		add(SIZE + col, card, -1);
+		return card;
+	}
+
+	/**
+	 * Add (delta 1) or remove (delta -1) a card from the counters of the given line and rescore the line.
+	 */
+	private void add(int line, Card card, int delta) {
+		int rank = card.getRank();
+		int bit = 1 << rank;
+		int rankIndex = line * Card.NUM_RANKS + rank;
+		if (delta > 0)
+			rankMasks[++rankCounts[rankIndex]][line] |= bit;
+		else
+			rankMasks[rankCounts[rankIndex]--][line] &= ~bit;
+		suitCounts[line * Card.NUM_SUITS + card.getSuit()] += delta;
+		cardCounts[line] += delta;
+		int handId = classify(line);
+		totalScore += scores[handId] - scores[handIds[line]];
+		handIds[line] = handId;
+	}
+
+	/**
+	 * Classify the given line from its counters.
+	 */
+	private int classify(int line) {
+		boolean flush = false;
+		if (cardCounts[line] == SIZE)
+			for (int suit = 0; suit < Card.NUM_SUITS; suit++)
+				if (suitCounts[line * Card.NUM_SUITS + suit] == SIZE)
+					flush = true;
+		return PokerHandClassifier.getPokerHandId(rankMasks[1][line], rankMasks[2][line], rankMasks[3][line], rankMasks[4][line], flush);
+	}
+
+	/**
+	 * Get the card at the given position.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @return the card at the given position or null if empty
+	 */
+	public Card getCard(int row, int col) {
+		return grid[row][col];
+	}
+
+	/**
+	 * Get the number of cards placed.
+	 * @return the number of cards placed
+	 */
+	public int getNumCards() {
+		return numCards;
+	}
+
+	/**
+	 * Get the current grid score.
+	 * @return the current grid score
+	 */
+	public int getScore() {
+		return totalScore;
+	}
+
+	/**
+	 * Get the current score of the given line (rows 0 through 4 followed by columns 0 through 4).
+	 * @param line line index
+	 * @return the current score of the given line
+	 */
+	public int getHandScore(int line) {
+		return scores[handIds[line]];
+	}
+
+	/**
+	 * Get the current hand classification identification number of the given line (rows 0 through 4 followed by
+	 * columns 0 through 4).
+	 * @param line line index
+	 * @return the current hand classification identification number of the given line
+	 */
+	public int getHandId(int line) {
+		return handIds[line];
+	}
+
+	/**
+	 * Get the number of cards in the given line (rows 0 through 4 followed by columns 0 through 4).
+	 * @param line line index
+	 * @return the number of cards in the given line
+	 */
+	public int getLineCardCount(int line) {
+		return cardCounts[line];
+	}
+
+	/**
+	 * Get the {@link PointSystemTables} signature of the given line of fewer than five cards.
+	 * @param line line index
+	 * @return the partial line signature of the given line
+	 */
+	public int getLineSignature(int line) {
+		boolean flushPossible = cardCounts[line] <= 1;
+		for (int suit = 0; suit < Card.NUM_SUITS && !flushPossible; suit++)
+			flushPossible = suitCounts[line * Card.NUM_SUITS + suit] == cardCounts[line];
+		return PointSystemTables.getSignature(rankMasks[1][line], rankMasks[2][line], rankMasks[3][line], rankMasks[4][line], flushPossible);
+	}
+
+	/**
+	 * Verify incremental totals against full rescoring over random place/remove sequences.
+	 * @param args (not used)
+	 */
+	public static void main(String[] args) {
+		java.util.Random random = new java.util.Random(0);
+		PokerSquaresPointSystem system = PokerSquaresPointSystem.getAmericanPointSystem();
+		IncrementalScorer scorer = new IncrementalScorer(system);
+		Card[][] grid = new Card[SIZE][SIZE];
+		Card[] deck = Card.getAllCards();
+		for (int game = 0; game < 100000; game++) {
+			scorer.clear();
+			for (int row = 0; row < SIZE; row++)
+				java.util.Arrays.fill(grid[row], null);
+			java.util.Collections.shuffle(java.util.Arrays.asList(deck), random);
+			for (int i = 0; i < SIZE * SIZE; i++) {
+				int pos = random.nextInt(SIZE * SIZE);
+				while (grid[pos / SIZE][pos % SIZE] != null)
+					pos = (pos + 1) % (SIZE * SIZE);
+				grid[pos / SIZE][pos % SIZE] = deck[i];
+				scorer.place(deck[i], pos / SIZE, pos % SIZE);
+				if (random.nextInt(4) == 0) { // occasionally undo and redo
+					scorer.remove(pos / SIZE, pos % SIZE);
+					scorer.place(deck[i], pos / SIZE, pos % SIZE);
+				}
+				if (scorer.getScore() != system.getScore(grid))
+					throw new IllegalStateException("Score mismatch in game " + game);
+			}
+		}
+		System.out.println("Incremental scores verified.");
+	}
+}
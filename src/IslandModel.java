@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Island-model genetic algorithm: several Populations evolve concurrently, one per task on the given executor.
+ * Every migrationInterval generations the islands synchronize and the fittest migrantCount Dna of each island
+ * replace the weakest of the next island in a ring.
+ */
+public class IslandModel {
+
+    private final Island[] islands;
+    private final int migrationInterval;
+    private final int migrantCount;
+    private final ExecutorService executor;
+
+    private Card[][] bestChild;
+    private int bestScore = Integer.MIN_VALUE;
+    private int generations = 0;
+
+    public IslandModel(int islandCount, int populationCount, float mutationRate, Card[][] cards,
+                       int migrationInterval, int migrantCount, ExecutorService executor) {
+        this(islandCount, populationCount, mutationRate, cards, migrationInterval, migrantCount, executor,
+                new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Create an island model whose island populations are seeded from the given seed.
+     */
+    public IslandModel(int islandCount, int populationCount, float mutationRate, Card[][] cards,
+                       int migrationInterval, int migrantCount, ExecutorService executor, long seed) {
+        this.islands = new Island[islandCount];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for(int i = 0; i<islandCount; i++) {
+            islands[i] = new Island(new Population(populationCount, mutationRate, cards, seeds.nextLong()));
+        }
+        this.migrationInterval = migrationInterval;
+        this.migrantCount = migrantCount;
+        this.executor = executor;
+    }
+
+    public Card[][] getBestChild() {
+        return bestChild;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Evolve all islands concurrently for up to migrationInterval generations or until the deadline, then migrate.
+     * @return the number of generations evolved by the slowest island
+     */
+    public int evolve(final PokerSquaresPointSystem system, final long deadlineMillis) {
+        ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for(final Island island : islands) {
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return island.evolve(system, migrationInterval, deadlineMillis);
+                }
+            }));
+        }
+
+        int epochGenerations = Integer.MAX_VALUE;
+        for(Future<Integer> future : futures) {
+            try {
+                epochGenerations = Math.min(epochGenerations, future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Island evolution interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Island evolution failed", e.getCause());
+            }
+        }
+        generations += epochGenerations;
+
+        for(Island island : islands) {
+            if(bestScore < island.bestScore) {
+                bestScore = island.bestScore;
+                bestChild = island.bestChild;
+            }
+        }
+
+        if(islands.length > 1 && migrantCount > 0) {
+            Dna[][] migrants = new Dna[islands.length][];
+            for(int i = 0; i<islands.length; i++) {
+                migrants[i] = islands[i].population.getFittest(system, migrantCount);
+            }
+            for(int i = 0; i<islands.length; i++) {
+                islands[(i + 1) % islands.length].population.replaceWeakest(system, migrants[i]);
+            }
+        }
+        return epochGenerations;
+    }
+
+    private static class Island {
+        private final Population population;
+        private Card[][] bestChild;
+        private int bestScore = Integer.MIN_VALUE;
+
+        private Island(Population population) {
+            this.population = population;
+        }
+
+        private int evolve(PokerSquaresPointSystem system, int maxGenerations, long deadlineMillis) {
+            int count = 0;
+            while(count < maxGenerations && System.currentTimeMillis() < deadlineMillis) {
+                count++;
+
+                population.calculateFitness(system);
+                population.generate();
+
+                int index = population.getBestFit(system);
+                int score = system.getScore(population.getChild(index));
+
+                if(bestScore < score) {
+                    bestScore = score;
+                    bestChild = population.getChild(index).toCards();
+                }
+                if(score <= bestScore && population.getGenerations() % 500 == 0) {
+                    float newMutation = population.getMutationRate() * 1.25f;
+                    if(newMutation > 0.8) {
+                        newMutation = 0.15f;
+                    }
+                    population.setMutationRate(newMutation);
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.Arrays;
+
+/**
+ * LinePotentialEvaluator - estimates the expected final score of a partially filled Poker Squares grid as the sum of
+ * the expected final scores of its rows and columns, so that Monte Carlo rollouts can stop early without crediting
+ * only the hands already made.
+ *
+ * A line with one or two open cells is evaluated exactly against the undealt deck: every completion from the deck
+ * (less the cards of the line itself) is classified under the point system and averaged.  A line with three or more
+ * open cells is evaluated from the {@link PointSystemTables} expected line scores, which assume the rest of a full
+ * deck.  The deck is fixed per decision with {@link #setUndealt(long)}, so cards drawn within a rollout are not
+ * removed from it (a small approximation for shallow rollouts), and exact line values depend only on the cards of the
+ * line.  They are cached in a fixed-size table keyed by the line's card set, which is invalidated by each new deck.
+ * An evaluator holds scratch arrays and is not thread-safe.
+ */
+public class LinePotentialEvaluator {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of rows/columns in square grid
+	private static final int NUM_LINES = 2 * SIZE; // number of scored rows and columns
+	private static final int MAX_EXACT_OPEN = 2; // maximum number of open cells of exactly evaluated lines
+	private static final int MAX_PROBES = 8; // cache entries probed per lookup
+
+	private final int[] scores; // point system score table
+	private final PointSystemTables tables; // expected line scores for lines with many open cells
+	private final long[] cacheKeys; // cached line card sets
+	private final double[] cacheValues; // cached expected line scores
+	private final int[] cacheGenerations; // deck generation of each cache entry (0 for empty entries)
+	private final int cacheMask; // cache index mask
+	private int generation; // current deck generation
+	private long undealt; // bit mask of undealt card ids
+	private final int[] lineCards = new int[SIZE]; // card ids of the evaluated line
+	private final int[] deck = new int[Card.NUM_CARDS]; // card ids available to complete the evaluated line
+	private long hits; // cache lookups finding their line
+	private long misses; // cache lookups not finding their line
+
+	/**
+	 * Create an evaluator with a cache of 2^cacheBits entries.
+	 * @param system point system
+	 * @param tables precomputed tables for the point system
+	 * @param cacheBits log2 of the number of cache entries
+	 */
+	public LinePotentialEvaluator(PokerSquaresPointSystem system, PointSystemTables tables, int cacheBits) {
+		this.scores = system.getScoreTable();
+		this.tables = tables;
+		cacheKeys = new long[1 << cacheBits];
+		cacheValues = new double[1 << cacheBits];
+		cacheGenerations = new int[1 << cacheBits];
+		cacheMask = (1 << cacheBits) - 1;
+	}
+
+	/**
+	 * Set the undealt deck for subsequent evaluations, invalidating cached line values.
+	 * @param undealtCards bit mask of undealt card ids
+	 */
+	public void setUndealt(long undealtCards) {
+		undealt = undealtCards;
+		if (++generation == 0) { // wrapped: really clear
+			Arrays.fill(cacheGenerations, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Return the estimated expected final score of the grid of the given scorer.
+	 * @param scorer scorer of the (partial) grid
+	 * @return the estimated expected final score
+	 */
+	public double evaluate(IncrementalScorer scorer) {
+		double total = 0;
+		for (int line = 0; line < NUM_LINES; line++)
+			total += evaluateLine(scorer, line);
+		return total;
+	}
+
+	/**
+	 * Return the estimated expected final score of the given line (rows 0 through 4 followed by columns 0 through 4)
+	 * of the grid of the given scorer.
+	 * @param scorer scorer of the (partial) grid
+	 * @param line line index
+	 * @return the estimated expected final score of the line
+	 */
+	public double evaluateLine(IncrementalScorer scorer, int line) {
+		int numCards = scorer.getLineCardCount(line);
+		if (numCards == SIZE)
+			return scorer.getHandScore(line);
+		if (SIZE - numCards > MAX_EXACT_OPEN)
+			return tables.getExpectedLineScore(scorer, line);
+
+		long key = 0L;
+		for (int i = 0; i < SIZE; i++) {
+			Card card = line < SIZE ? scorer.getCard(line, i) : scorer.getCard(i, line - SIZE);
+			if (card != null)
+				key |= 1L << card.getCardId();
+		}
+		int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & cacheMask;
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int i = index + probe & cacheMask;
+			if (cacheGenerations[i] != generation) {
+				index = i; // first free entry
+				break;
+			}
+			if (cacheKeys[i] == key) {
+				hits++;
+				return cacheValues[i];
+			}
+		}
+		misses++;
+		double value = exactValue(key, numCards);
+		cacheKeys[index] = key;
+		cacheValues[index] = value;
+		cacheGenerations[index] = generation;
+		return value;
+	}
+
+	/**
+	 * Return the average final score of the line with the given card set over all completions from the undealt deck.
+	 */
+	private double exactValue(long lineMask, int numCards) {
+		int n = 0;
+		for (long bits = lineMask; bits != 0; bits &= bits - 1)
+			lineCards[n++] = Long.numberOfTrailingZeros(bits);
+		int deckSize = 0;
+		for (long bits = undealt & ~lineMask; bits != 0; bits &= bits - 1)
+			deck[deckSize++] = Long.numberOfTrailingZeros(bits);
+		int[] c = lineCards;
+		long total = 0;
+		if (numCards == SIZE - 1) {
+			if (deckSize == 0)
+				return scores[PokerHandClassifier.getPokerHandId(c[0], c[1], c[2], c[3], PackedGrid.EMPTY)];
+			for (int i = 0; i < deckSize; i++)
+				total += scores[PokerHandClassifier.getPokerHandId(c[0], c[1], c[2], c[3], deck[i])];
+			return (double) total / deckSize;
+		}
+		if (deckSize < 2)
+			return tables.getExpectedLineScore(signatureLine(c, numCards));
+		for (int i = 0; i < deckSize; i++)
+			for (int j = i + 1; j < deckSize; j++)
+				total += scores[PokerHandClassifier.getPokerHandId(c[0], c[1], c[2], deck[i], deck[j])];
+		return (double) total / (deckSize * (deckSize - 1) / 2);
+	}
+
+	/**
+	 * Return the PointSystemTables signature of the given card ids.
+	 */
+	private static int signatureLine(int[] cardIds, int numCards) {
+		Card[] line = new Card[SIZE];
+		for (int i = 0; i < numCards; i++)
+			line[i] = Card.getCard(cardIds[i]);
+		return PointSystemTables.getSignature(line);
+	}
+
+	/**
+	 * Get the number of cache lookups that found their line.
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of cache lookups that did not find their line.
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the fraction of cache lookups that found their line.
+	 * @return the cache hit rate
+	 */
+	public double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+}
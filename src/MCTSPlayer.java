@@ -0,0 +1,355 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MCTSPlayer - a Monte Carlo Tree Search implementation of the player interface for PokerSquares.
+ * The search tree alternates decision nodes, where the drawn card is known and a child is chosen for each empty
+ * position by UCT (upper confidence bounds applied to trees), and chance nodes, where the next card is drawn.
+ * Chance nodes grow by progressive widening: a chance node visited n times may have at most
+ * ceil(widening * n^wideningExponent) card children, so that simulation effort concentrates on a sample of draws
+ * rather than spreading thinly over all undealt cards.  Leaves are evaluated by random play to the end of the game.
+ * After each play, the subtree of the chosen position is kept, and the next search starts from its child for the
+ * card actually drawn, if that card was sampled.
+ */
+public class MCTSPlayer implements PokerSquaresPlayer {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of rows/columns in square grid
+	private static final int NUM_POS = SIZE * SIZE; // number of positions in square grid
+	private static final int CHECK_INTERVAL = 64; // iterations between clock checks
+
+	/**
+	 * Node where the drawn card is known and a position is chosen.  Child i is the chance node after playing the
+	 * card at positions[i].
+	 */
+	private static final class DecisionNode {
+		final Card card; // drawn card
+		final int[] positions; // empty positions (row-major) in random order
+		final ChanceNode[] children; // chance node of each position, or null if unexpanded
+		int visits; // number of iterations through this node
+
+		DecisionNode(Card card, int[] positions) {
+			this.card = card;
+			this.positions = positions;
+			this.children = new ChanceNode[positions.length];
+		}
+	}
+
+	/**
+	 * Node after a play, before the next card is drawn.  Also records the statistics of the play leading to it.
+	 */
+	private static final class ChanceNode {
+		DecisionNode[] children = new DecisionNode[2]; // decision nodes of sampled cards
+		int numChildren; // number of sampled cards
+		int visits; // number of iterations through this node
+		double totalScore; // sum of final scores of iterations through this node
+
+		DecisionNode getChild(Card card) {
+			for (int i = 0; i < numChildren; i++)
+				if (children[i].card == card)
+					return children[i];
+			return null;
+		}
+
+		void addChild(DecisionNode child) {
+			if (numChildren == children.length)
+				children = Arrays.copyOf(children, 2 * numChildren);
+			children[numChildren++] = child;
+		}
+	}
+
+	private final double exploration; // UCT exploration constant in units of the point system's hand score range
+	private final double widening; // progressive widening coefficient
+	private final double wideningExponent; // progressive widening exponent
+	private final int maxNewNodes; // maximum number of nodes created per play
+	private PokerSquaresPointSystem system; // point system
+	private double explorationScale; // exploration times hand score range
+	private IncrementalScorer scorer; // grid of actual plays, plus simulated plays during an iteration
+	private long usedCards; // bit mask of card ids placed in scorer
+	private final int[] path = new int[NUM_POS]; // positions played in the current iteration
+	private final DecisionNode[] decisionPath = new DecisionNode[NUM_POS]; // decision nodes of the current iteration
+	private final ChanceNode[] chancePath = new ChanceNode[NUM_POS]; // chance nodes of the current iteration
+	private final int[] emptyScratch = new int[NUM_POS]; // empty positions during rollouts
+	private ChanceNode subtree; // chance node after the last actual play, kept for tree reuse
+	private SplittableRandom random = new SplittableRandom(); // pseudorandom number generator for simulation
+	private int newNodes; // number of nodes created for the current play
+	private long lastIterations; // number of iterations of the most recent search
+
+	/**
+	 * Create an MCTS player with exploration constant 0.5, progressive widening 2 * n^0.5 and at most 1000000 new
+	 * nodes per play.
+	 */
+	public MCTSPlayer() {
+		this(0.5, 2, 0.5, 1000000);
+	}
+
+	/**
+	 * Create an MCTS player with the given parameters.
+	 * @param exploration UCT exploration constant in units of the point system's hand score range
+	 * @param widening progressive widening coefficient
+	 * @param wideningExponent progressive widening exponent
+	 * @param maxNewNodes maximum number of nodes created per play (leaves beyond are only evaluated by rollouts)
+	 */
+	public MCTSPlayer(double exploration, double widening, double wideningExponent, int maxNewNodes) {
+		this.exploration = exploration;
+		this.widening = widening;
+		this.wideningExponent = wideningExponent;
+		this.maxNewNodes = maxNewNodes;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setPointSystem(PokerSquaresPointSystem, long)
+	 */
+	@Override
+	public void setPointSystem(PokerSquaresPointSystem system, long millis) {
+		this.system = system;
+		this.scorer = new IncrementalScorer(system);
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for (int points : system.getScoreTable()) {
+			min = Math.min(min, points);
+			max = Math.max(max, points);
+		}
+		explorationScale = exploration * Math.max(1, max - min);
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#init()
+	 */
+	@Override
+	public void init() {
+		scorer.clear();
+		usedCards = 0L;
+		subtree = null;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#getPlay(Card, long)
+	 */
+	@Override
+	public int[] getPlay(Card card, long millisRemaining) {
+		int remainingPlays = NUM_POS - scorer.getNumCards();
+		DecisionNode root = subtree == null ? null : subtree.getChild(card);
+		if (root == null)
+			root = new DecisionNode(card, emptyPositions());
+		newNodes = 0;
+		lastIterations = 0;
+
+		if (remainingPlays > 1) { // not the forced last play
+			// divide time evenly with future getPlay() calls (ignoring the triviality of the last play as a safety margin)
+			long deadline = System.nanoTime() + millisRemaining * 1000000L / remainingPlays;
+			do {
+				for (int i = 0; i < CHECK_INTERVAL; i++)
+					iterate(root);
+				lastIterations += CHECK_INTERVAL;
+			} while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+		}
+
+		// choose the most visited play
+		int best = 0;
+		for (int i = 1; i < root.children.length; i++)
+			if (visits(root.children[i]) > visits(root.children[best]))
+				best = i;
+		int play = root.positions[best];
+		scorer.place(card, play / SIZE, play % SIZE);
+		usedCards |= 1L << card.getCardId();
+		subtree = root.children[best];
+		return new int[] {play / SIZE, play % SIZE};
+	}
+
+	/**
+	 * Perform one MCTS iteration (selection, expansion, rollout and backpropagation) from the given root.
+	 */
+	private void iterate(DecisionNode root) {
+		int depth = 0;
+		DecisionNode decision = root;
+		double score;
+		while (true) {
+			// selection of a position at a decision node
+			int i = select(decision);
+			place(decision.card, decision.positions[i], depth);
+			decisionPath[depth] = decision;
+			ChanceNode chance = decision.children[i];
+			if (chance == null && newNodes < maxNewNodes) { // expansion
+				chance = decision.children[i] = new ChanceNode();
+				newNodes++;
+				chancePath[depth++] = chance;
+				score = rollout(depth);
+				break;
+			}
+			chancePath[depth++] = chance;
+			if (chance == null) { // node limit reached
+				score = rollout(depth);
+				break;
+			}
+			if (scorer.getNumCards() == NUM_POS) { // game end
+				score = scorer.getScore();
+				break;
+			}
+
+			// sampling of a card at a chance node with progressive widening
+			DecisionNode next;
+			if (chance.numChildren < Math.ceil(widening * Math.pow(chance.visits + 1, wideningExponent)) && newNodes < maxNewNodes) {
+				Card card = drawCard();
+				next = chance.getChild(card);
+				if (next == null) {
+					next = new DecisionNode(card, emptyPositions());
+					chance.addChild(next);
+					newNodes++;
+				}
+			}
+			else if (chance.numChildren > 0)
+				next = chance.children[random.nextInt(chance.numChildren)];
+			else {
+				score = rollout(depth);
+				break;
+			}
+			decision = next;
+		}
+
+		// backpropagation
+		for (int d = 0; d < depth; d++) {
+			decisionPath[d].visits++;
+			if (chancePath[d] != null) {
+				chancePath[d].visits++;
+				chancePath[d].totalScore += score;
+			}
+		}
+		unwind(depth);
+	}
+
+	/**
+	 * Return the index of the UCT-selected position of the given decision node (unvisited positions first).
+	 */
+	private int select(DecisionNode decision) {
+		int best = 0;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double logVisits = Math.log(decision.visits + 1);
+		for (int i = 0; i < decision.children.length; i++) {
+			ChanceNode child = decision.children[i];
+			if (child == null || child.visits == 0)
+				return i;
+			double value = child.totalScore / child.visits + explorationScale * Math.sqrt(logVisits / child.visits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the visit count of the given chance node, or 0 if null.
+	 */
+	private static int visits(ChanceNode node) {
+		return node == null ? 0 : node.visits;
+	}
+
+	/**
+	 * Play random undealt cards at random empty positions to the end of the game, return the final score, and undo
+	 * these rollout plays.
+	 * @param depth number of tree plays made so far in this iteration
+	 * @return final score of the rollout
+	 */
+	private int rollout(int depth) {
+		int numEmpty = 0;
+		for (int pos = 0; pos < NUM_POS; pos++)
+			if (scorer.getCard(pos / SIZE, pos % SIZE) == null)
+				emptyScratch[numEmpty++] = pos;
+		int start = depth;
+		while (numEmpty > 0) {
+			int i = random.nextInt(numEmpty);
+			int pos = emptyScratch[i];
+			emptyScratch[i] = emptyScratch[--numEmpty];
+			place(drawCard(), pos, depth++);
+		}
+		int score = scorer.getScore();
+		for (int d = depth - 1; d >= start; d--)
+			remove(path[d]);
+		return score;
+	}
+
+	/**
+	 * Undo the tree plays of the current iteration.
+	 */
+	private void unwind(int depth) {
+		for (int d = depth - 1; d >= 0; d--)
+			remove(path[d]);
+	}
+
+	/**
+	 * Return a random undealt card.
+	 */
+	private Card drawCard() {
+		int cardId;
+		do
+			cardId = random.nextInt(Card.NUM_CARDS);
+		while ((usedCards & 1L << cardId) != 0);
+		return Card.getCard(cardId);
+	}
+
+	/**
+	 * Place a card in the scorer grid and record the position at the given depth of the iteration path.
+	 */
+	private void place(Card card, int pos, int depth) {
+		scorer.place(card, pos / SIZE, pos % SIZE);
+		usedCards |= 1L << card.getCardId();
+		path[depth] = pos;
+	}
+
+	/**
+	 * Remove the card at the given position of the scorer grid.
+	 */
+	private void remove(int pos) {
+		Card card = scorer.remove(pos / SIZE, pos % SIZE);
+		usedCards &= ~(1L << card.getCardId());
+	}
+
+	/**
+	 * Return the empty positions of the scorer grid in random order.
+	 */
+	private int[] emptyPositions() {
+		int[] positions = new int[NUM_POS - scorer.getNumCards()];
+		int n = 0;
+		for (int pos = 0; pos < NUM_POS; pos++)
+			if (scorer.getCard(pos / SIZE, pos % SIZE) == null) {
+				int j = random.nextInt(n + 1);
+				positions[n++] = positions[j];
+				positions[j] = pos;
+			}
+		return positions;
+	}
+
+	/**
+	 * Get the number of MCTS iterations of the most recent play decision.
+	 * @return the number of MCTS iterations of the most recent play decision
+	 */
+	public long getLastIterationCount() {
+		return lastIterations;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#getName()
+	 */
+	@Override
+	public String getName() {
+		return "MCTSPlayer";
+	}
+
+	/**
+	 * Demonstrate MCTSPlayer play with Ameritish point system.
+	 * @param args (not used)
+	 */
+	public static void main(String[] args) {
+		PokerSquaresPointSystem system = PokerSquaresPointSystem.getAmeritishPointSystem();
+		System.out.println(system);
+		new PokerSquares(new MCTSPlayer(), system).play(); // play a single game
+	}
+
+}
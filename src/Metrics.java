@@ -0,0 +1,530 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Metrics - a process-wide registry of named counters, histograms, timers and series for observing players and
+ * games (simulation counts, generations, per-move latency and so on), with snapshots exported as JSON or CSV.
+ *
+ * Metrics are disabled by default, and enabled with {@link #setEnabled(boolean)} or the system property
+ * pokersquares.metrics=true.  While disabled, every recording method returns after a single read of a volatile
+ * flag, so instrumented code should look its metrics up once (e.g. in static final fields) and may then record
+ * unconditionally.  Counters are LongAdders and histograms are arrays of log-linear buckets in the manner of
+ * HdrHistogram (16 buckets per power of two, so that percentiles are within 1/16 of the recorded values), so that
+ * concurrent recording from simulation threads does not contend on a lock.
+ */
+public final class Metrics {
+
+	private static volatile boolean enabled = Boolean.getBoolean("pokersquares.metrics"); // whether recording is on
+	private static final ConcurrentSkipListMap<String, Metric> registry = new ConcurrentSkipListMap<String, Metric>(); // metrics by name
+	private static final String CSV_HEADER = "name,type,count,sum,mean,min,max,p50,p90,p99"; // CSV snapshot header
+
+	/**
+	 * Metrics has only static members.
+	 */
+	private Metrics() {
+	}
+
+	/**
+	 * Return whether metrics are recorded.
+	 * @return whether metrics are recorded
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turn metrics recording on or off.  Recorded values are kept while recording is off.
+	 * @param enabled whether metrics are recorded
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * A named metric.
+	 */
+	public static abstract class Metric {
+		private final String name; // metric name
+
+		Metric(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Get the metric name.
+		 * @return the metric name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Clear recorded values.
+		 */
+		public abstract void reset();
+
+		abstract String getType();
+
+		abstract void appendJson(StringBuilder json);
+
+		abstract void appendCsv(StringBuilder csv);
+	}
+
+	/**
+	 * A count of events.
+	 */
+	public static final class Counter extends Metric {
+		private final LongAdder count = new LongAdder(); // total count
+
+		Counter(String name) {
+			super(name);
+		}
+
+		/**
+		 * Count one event.
+		 */
+		public void increment() {
+			if (enabled)
+				count.increment();
+		}
+
+		/**
+		 * Count the given number of events.
+		 * @param n number of events
+		 */
+		public void add(long n) {
+			if (enabled)
+				count.add(n);
+		}
+
+		/**
+		 * Get the count.
+		 * @return the count
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		@Override
+		public void reset() {
+			count.reset();
+		}
+
+		@Override
+		String getType() {
+			return "counter";
+		}
+
+		@Override
+		void appendJson(StringBuilder json) {
+			json.append("\"count\": ").append(getCount());
+		}
+
+		@Override
+		void appendCsv(StringBuilder csv) {
+			csv.append(getCount()).append(",,,,,,,");
+		}
+	}
+
+	/**
+	 * A distribution of non-negative long values (negative values are recorded as 0) in log-linear buckets.
+	 */
+	public static class Histogram extends Metric {
+		private static final int SUB_BITS = 4; // log2 of buckets per power of two
+		private static final int SUB_COUNT = 1 << SUB_BITS; // buckets per power of two
+		private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_COUNT; // buckets covering all long values
+		private static final LongBinaryOperator MIN = new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long a, long b) {
+				return Math.min(a, b);
+			}
+		};
+		private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long a, long b) {
+				return Math.max(a, b);
+			}
+		};
+
+		private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS); // value counts by bucket
+		private final LongAdder count = new LongAdder(); // number of values
+		private final LongAdder sum = new LongAdder(); // sum of values
+		private final LongAccumulator min = new LongAccumulator(MIN, Long.MAX_VALUE); // minimum value
+		private final LongAccumulator max = new LongAccumulator(MAX, Long.MIN_VALUE); // maximum value
+
+		Histogram(String name) {
+			super(name);
+		}
+
+		/**
+		 * Record a value.
+		 * @param value value
+		 */
+		public void record(long value) {
+			if (!enabled)
+				return;
+			value = Math.max(0, value);
+			buckets.incrementAndGet(getBucket(value));
+			count.increment();
+			sum.add(value);
+			min.accumulate(value);
+			max.accumulate(value);
+		}
+
+		/**
+		 * Return the bucket index of the given non-negative value.
+		 */
+		private static int getBucket(long value) {
+			if (value < SUB_COUNT)
+				return (int) value;
+			int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+			return (shift + 1) * SUB_COUNT + (int) (value >>> shift & SUB_COUNT - 1);
+		}
+
+		/**
+		 * Return the smallest value of the given bucket.
+		 */
+		private static long getBucketValue(int bucket) {
+			if (bucket < SUB_COUNT)
+				return bucket;
+			return (long) (SUB_COUNT + bucket % SUB_COUNT) << bucket / SUB_COUNT - 1;
+		}
+
+		/**
+		 * Get the number of recorded values.
+		 * @return the number of recorded values
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * Get the sum of recorded values.
+		 * @return the sum of recorded values
+		 */
+		public long getSum() {
+			return sum.sum();
+		}
+
+		/**
+		 * Get the mean of recorded values.
+		 * @return the mean of recorded values, or NaN if none
+		 */
+		public double getMean() {
+			long n = getCount();
+			return n == 0 ? Double.NaN : (double) getSum() / n;
+		}
+
+		/**
+		 * Get the minimum recorded value.
+		 * @return the minimum recorded value, or 0 if none
+		 */
+		public long getMin() {
+			return getCount() == 0 ? 0 : min.get();
+		}
+
+		/**
+		 * Get the maximum recorded value.
+		 * @return the maximum recorded value, or 0 if none
+		 */
+		public long getMax() {
+			return getCount() == 0 ? 0 : max.get();
+		}
+
+		/**
+		 * Get the given percentile of recorded values, to the precision of the buckets.
+		 * @param percentile percentile in [0, 100]
+		 * @return the smallest value of the bucket containing the percentile (clamped to the recorded range), or 0 if
+		 * none
+		 */
+		public long getPercentile(double percentile) {
+			long total = 0;
+			long[] counts = new long[NUM_BUCKETS];
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				total += counts[i] = buckets.get(i);
+			if (total == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+			long seen = 0;
+			int bucket = 0;
+			while (bucket < NUM_BUCKETS - 1 && (seen += counts[bucket]) < rank)
+				bucket++;
+			return Math.max(getMin(), Math.min(getMax(), getBucketValue(bucket)));
+		}
+
+		@Override
+		public void reset() {
+			for (int i = 0; i < NUM_BUCKETS; i++)
+				buckets.set(i, 0);
+			count.reset();
+			sum.reset();
+			min.reset();
+			max.reset();
+		}
+
+		@Override
+		String getType() {
+			return "histogram";
+		}
+
+		@Override
+		void appendJson(StringBuilder json) {
+			json.append(String.format(Locale.ROOT, "\"count\": %d, \"sum\": %d, \"mean\": %s, \"min\": %d, \"max\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d",
+					getCount(), getSum(), jsonNumber(getMean()), getMin(), getMax(), getPercentile(50), getPercentile(90), getPercentile(99)));
+		}
+
+		@Override
+		void appendCsv(StringBuilder csv) {
+			csv.append(String.format(Locale.ROOT, "%d,%d,%s,%d,%d,%d,%d,%d", getCount(), getSum(), csvNumber(getMean()), getMin(), getMax(),
+					getPercentile(50), getPercentile(90), getPercentile(99)));
+		}
+	}
+
+	/**
+	 * A histogram of elapsed nanoseconds.
+	 */
+	public static final class Timer extends Histogram {
+
+		Timer(String name) {
+			super(name);
+		}
+
+		/**
+		 * Start timing.
+		 * @return a start time to pass to {@link #stop(long)} (0 if metrics are disabled)
+		 */
+		public long start() {
+			return enabled ? System.nanoTime() : 0L;
+		}
+
+		/**
+		 * Record the nanoseconds elapsed since the given start time.
+		 * @param startNanos start time returned by {@link #start()}
+		 */
+		public void stop(long startNanos) {
+			if (enabled && startNanos != 0L)
+				record(System.nanoTime() - startNanos);
+		}
+
+		@Override
+		String getType() {
+			return "timer";
+		}
+	}
+
+	/**
+	 * The most recent values of a sequence (e.g. the best score of each generation), numbered in recording order.
+	 */
+	public static final class Series extends Metric {
+		private final double[] values; // ring buffer of the most recent values
+		private long count; // number of values recorded (guarded by this)
+
+		Series(String name, int capacity) {
+			super(name);
+			values = new double[capacity];
+		}
+
+		/**
+		 * Record the next value of the sequence.
+		 * @param value value
+		 */
+		public void record(double value) {
+			if (!enabled)
+				return;
+			synchronized (this) {
+				values[(int) (count++ % values.length)] = value;
+			}
+		}
+
+		/**
+		 * Get the number of values recorded.
+		 * @return the number of values recorded
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the most recent values, oldest first.
+		 * @return the most recent values (at most the capacity), oldest first
+		 */
+		public synchronized double[] getValues() {
+			int n = (int) Math.min(count, values.length);
+			double[] recent = new double[n];
+			for (int i = 0; i < n; i++)
+				recent[i] = values[(int) ((count - n + i) % values.length)];
+			return recent;
+		}
+
+		@Override
+		public synchronized void reset() {
+			count = 0;
+		}
+
+		@Override
+		String getType() {
+			return "series";
+		}
+
+		@Override
+		void appendJson(StringBuilder json) {
+			double[] recent;
+			long n;
+			synchronized (this) {
+				recent = getValues();
+				n = count;
+			}
+			json.append("\"count\": ").append(n).append(", \"first\": ").append(n - recent.length).append(", \"values\": [");
+			for (int i = 0; i < recent.length; i++)
+				json.append(i == 0 ? "" : ", ").append(jsonNumber(recent[i]));
+			json.append(']');
+		}
+
+		@Override
+		void appendCsv(StringBuilder csv) {
+			double[] recent;
+			long n;
+			synchronized (this) {
+				recent = getValues();
+				n = count;
+			}
+			double min = Double.NaN, max = Double.NaN;
+			for (double value : recent) {
+				min = Double.isNaN(min) ? value : Math.min(min, value);
+				max = Double.isNaN(max) ? value : Math.max(max, value);
+			}
+			csv.append(n).append(",,,").append(csvNumber(min)).append(',').append(csvNumber(max)).append(",,,");
+		}
+	}
+
+	/**
+	 * Get the counter of the given name, registering it if new.
+	 * @param name metric name
+	 * @return the counter
+	 */
+	public static Counter counter(String name) {
+		Metric metric = registry.get(name);
+		return metric != null ? cast(metric, Counter.class) : register(new Counter(name), Counter.class);
+	}
+
+	/**
+	 * Get the histogram of the given name, registering it if new.
+	 * @param name metric name
+	 * @return the histogram
+	 */
+	public static Histogram histogram(String name) {
+		Metric metric = registry.get(name);
+		return metric != null ? cast(metric, Histogram.class) : register(new Histogram(name), Histogram.class);
+	}
+
+	/**
+	 * Get the timer of the given name, registering it if new.
+	 * @param name metric name
+	 * @return the timer
+	 */
+	public static Timer timer(String name) {
+		Metric metric = registry.get(name);
+		return metric != null ? cast(metric, Timer.class) : register(new Timer(name), Timer.class);
+	}
+
+	/**
+	 * Get the series of the given name, registering it with the given capacity if new.
+	 * @param name metric name
+	 * @param capacity number of most recent values kept
+	 * @return the series
+	 */
+	public static Series series(String name, int capacity) {
+		Metric metric = registry.get(name);
+		return metric != null ? cast(metric, Series.class) : register(new Series(name, capacity), Series.class);
+	}
+
+	/**
+	 * Register the given metric unless its name was registered concurrently, and return the registered metric.
+	 */
+	private static <T extends Metric> T register(T metric, Class<T> type) {
+		Metric previous = registry.putIfAbsent(metric.getName(), metric);
+		return previous == null ? metric : cast(previous, type);
+	}
+
+	/**
+	 * Return the given metric as the given type.
+	 * @throws IllegalArgumentException if the metric's name is registered with another type
+	 */
+	private static <T extends Metric> T cast(Metric metric, Class<T> type) {
+		if (metric.getClass() != type)
+			throw new IllegalArgumentException("Metric " + metric.getName() + " is a " + metric.getType() + ", not a " + type.getSimpleName());
+		return type.cast(metric);
+	}
+
+	/**
+	 * Clear the recorded values of all metrics (registrations are kept).
+	 */
+	public static void reset() {
+		for (Metric metric : registry.values())
+			metric.reset();
+	}
+
+	/**
+	 * Return a JSON snapshot of all metrics: an object mapping metric names (in sorted order) to objects with the
+	 * metric type and statistics.  Timer statistics are in nanoseconds.
+	 * @return a JSON snapshot of all metrics
+	 */
+	public static String toJson() {
+		StringBuilder json = new StringBuilder("{");
+		String separator = "\n";
+		for (Metric metric : registry.values()) {
+			json.append(separator).append("  \"").append(metric.getName()).append("\": {\"type\": \"").append(metric.getType()).append("\", ");
+			metric.appendJson(json);
+			json.append('}');
+			separator = ",\n";
+		}
+		return json.append("\n}\n").toString();
+	}
+
+	/**
+	 * Return a CSV snapshot of all metrics, one row per metric (in sorted order) with columns name, type, count, sum,
+	 * mean, min, max, p50, p90 and p99 (blank where not applicable).  Timer statistics are in nanoseconds.
+	 * @return a CSV snapshot of all metrics
+	 */
+	public static String toCsv() {
+		StringBuilder csv = new StringBuilder(CSV_HEADER).append('\n');
+		for (Metric metric : registry.values()) {
+			csv.append(metric.getName()).append(',').append(metric.getType()).append(',');
+			metric.appendCsv(csv);
+			csv.append('\n');
+		}
+		return csv.toString();
+	}
+
+	/**
+	 * Write a snapshot of all metrics to the given file, as CSV if its name ends with ".csv" and as JSON otherwise.
+	 * @param file output file name
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(String file) throws IOException {
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.print(file.endsWith(".csv") ? toCsv() : toJson());
+		}
+	}
+
+	/**
+	 * Return the given number as a JSON value (null if not finite).
+	 */
+	private static String jsonNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.6g", value);
+	}
+
+	/**
+	 * Return the given number as a CSV field (blank if not finite).
+	 */
+	private static String csvNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "" : String.format(Locale.ROOT, "%.6g", value);
+	}
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+
+/**
+ * PackedGrid - Compact Poker Squares grid storing each of the 25 positions as a six-bit code in three longs.
+ * A code of 0 denotes an empty position; otherwise the code is the card identification number (see
+ * {@link Card#getCardId()}) plus one.  Positions are addressed either by (row, column) or by row-major index
+ * row * SIZE + col, ten positions per long.  Copying, equality and hashing operate on the three longs directly.
+ */
+public final class PackedGrid {
+
+	/**
+	 * card identification number returned for empty positions
+	 */
+	public static final int EMPTY = -1;
+
+	private static final int SIZE = PokerSquares.SIZE; // Poker Squares number of rows/columns
+	private static final int NUM_POS = SIZE * SIZE; // number of positions in grid
+	private static final int BITS = 6; // bits per position code
+	private static final int POS_PER_WORD = 10; // position codes per long
+	private static final long MASK = (1L << BITS) - 1; // mask of a single position code
+
+	private final long[] words = new long[(NUM_POS + POS_PER_WORD - 1) / POS_PER_WORD]; // packed position codes
+
+	/**
+	 * Create an empty grid.
+	 */
+	public PackedGrid() {
+	}
+
+	/**
+	 * Create a copy of the given grid.
+	 * @param other grid to copy
+	 */
+	public PackedGrid(PackedGrid other) {
+		copyFrom(other);
+	}
+
+	/**
+	 * Create a packed grid from the given Card grid.
+	 * @param grid 2D Card array representing play grid (null for empty positions)
+	 */
+	public PackedGrid(Card[][] grid) {
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				if (grid[row][col] != null)
+					set(row * SIZE + col, grid[row][col].getCardId());
+	}
+
+	/**
+	 * Overwrite this grid with the contents of the given grid.
+	 * @param other grid to copy
+	 */
+	public void copyFrom(PackedGrid other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * Empty all positions.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+	/**
+	 * Get the card identification number at the given row-major position.
+	 * @param pos row-major position index
+	 * @return the card identification number at the given position or EMPTY
+	 */
+	public int get(int pos) {
+		return (int) (words[pos / POS_PER_WORD] >>> (pos % POS_PER_WORD * BITS) & MASK) - 1;
+	}
+
+	/**
+	 * Get the card identification number at the given position.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @return the card identification number at the given position or EMPTY
+	 */
+	public int get(int row, int col) {
+		return get(row * SIZE + col);
+	}
+
+	/**
+	 * Get the card at the given position.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @return the card at the given position or null if empty
+	 */
+	public Card getCard(int row, int col) {
+		int cardId = get(row, col);
+		return cardId == EMPTY ? null : Card.getCard(cardId);
+	}
+
+	/**
+	 * Set the card identification number at the given row-major position.
+	 * @param pos row-major position index
+	 * @param cardId card identification number or EMPTY
+	 */
+	public void set(int pos, int cardId) {
+		int word = pos / POS_PER_WORD;
+		int shift = pos % POS_PER_WORD * BITS;
+		words[word] = words[word] & ~(MASK << shift) | (long) (cardId + 1) << shift;
+	}
+
+	/**
+	 * Set the card identification number at the given position.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @param cardId card identification number or EMPTY
+	 */
+	public void set(int row, int col, int cardId) {
+		set(row * SIZE + col, cardId);
+	}
+
+	/**
+	 * Place the given card (or null for empty) at the given position.
+	 * @param row row of the position
+	 * @param col column of the position
+	 * @param card card to place or null
+	 */
+	public void setCard(int row, int col, Card card) {
+		set(row * SIZE + col, card == null ? EMPTY : card.getCardId());
+	}
+
+	/**
+	 * Exchange the contents of two row-major positions.
+	 * @param pos1 first row-major position index
+	 * @param pos2 second row-major position index
+	 */
+	public void swap(int pos1, int pos2) {
+		int cardId = get(pos1);
+		set(pos1, get(pos2));
+		set(pos2, cardId);
+	}
+
+	/**
+	 * Return a Card grid with the contents of this grid.
+	 * @return 2D Card array representing play grid (null for empty positions)
+	 */
+	public Card[][] toCards() {
+		Card[][] grid = new Card[SIZE][SIZE];
+		for (int row = 0; row < SIZE; row++)
+			for (int col = 0; col < SIZE; col++)
+				grid[row][col] = getCard(row, col);
+		return grid;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof PackedGrid))
+			return false;
+		long[] o = ((PackedGrid) other).words;
+		return words[0] == o[0] && words[1] == o[1] && words[2] == o[2];
+	}
+
+	/**
+	 * Return a 64-bit hash of the grid contents.
+	 * @return a 64-bit hash of the grid contents
+	 */
+	public long longHashCode() {
+		long h = words[0] * 0x9E3779B97F4A7C15L;
+		h = (h ^ words[1] ^ h >>> 29) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ words[2] ^ h >>> 32) * 0x94D049BB133111EBL;
+		return h ^ h >>> 31;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		long h = longHashCode();
+		return (int) (h ^ h >>> 32);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int row = 0; row < SIZE; row++) {
+			for (int col = 0; col < SIZE; col++) {
+				Card card = getCard(row, col);
+				sb.append(' ').append(card == null ? "--" : card.toString()).append(' ');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,53 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PlayerExecutor - the executor shared by all players that compute on additional threads (e.g. root-parallel Monte
+ * Carlo workers and genetic algorithm islands).  Its daemon threads are created on demand, reused by later tasks of
+ * any player, and stopped after KEEP_ALIVE_SECONDS without work, so that players hold no threads of their own and
+ * need not be shut down.
+ *
+ * The number of threads is not bounded, so that a player's tasks never wait behind those of other players on its
+ * play clock.  Referees playing games concurrently keep the threads of their players within the available processors
+ * (see {@link PokerSquaresPlayer#getNumThreads()}).  The shared executor must not be shut down.
+ */
+public final class PlayerExecutor {
+
+	public static final long KEEP_ALIVE_SECONDS = 60L; // time an idle thread is kept for reuse
+	private static final AtomicInteger threadsCreated = new AtomicInteger(); // number of threads created
+	private static final ExecutorService shared = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS,
+			TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "player-" + threadsCreated.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}); // cached pool of player threads
+
+	/**
+	 * PlayerExecutor has only static members.
+	 */
+	private PlayerExecutor() {
+	}
+
+	/**
+	 * Return the executor shared by all players.
+	 * @return the shared player executor
+	 */
+	public static ExecutorService getShared() {
+		return shared;
+	}
+
+	/**
+	 * Get the number of threads created by the shared executor.
+	 * @return the number of threads created
+	 */
+	public static int getThreadsCreated() {
+		return threadsCreated.get();
+	}
+}
@@ -0,0 +1,452 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PointSystemSweep - characterizes one player's robustness across many generated point systems.  System i of a sweep
+ * is generated from its own pseudorandom stream, seeded by the sweep seed and i, so that systems are produced lazily
+ * (never held all at once), independently of which thread evaluates them, and identically when a sweep is resumed.
+ * Worker threads claim systems one at a time; each worker creates one player from the given factory, gives it each
+ * claimed point system, and plays the configured number of seeded games with it (game g with the deal of
+ * PokerSquares seed startSeed + g, as in BatchSimulator).
+ *
+ * Per-system statistics are aggregated incrementally into a {@link Summary} of the distribution of the systems'
+ * mean scores, raw and normalized to the point system's range (0 for ten minimum hands, 1 for ten maximum hands).
+ * If a checkpoint file is set, each completed system is appended to it as a CSV row (index, score table, games,
+ * mean, standard deviation, minimum, maximum) and flushed, and a later sweep with the same configuration resumes by
+ * reloading the completed rows and evaluating only the remaining systems.
+ *
+ * Usage: java PointSystemSweep [-generator AMERITISH|HYPERCORNER|RANDOM|SINGLE_HAND] [-systems n] [-games n]
+ * [-seed s] [-threads n] [-millis gameMillis] [-checkpoint file] [player class name (default RandomPlayer)]
+ */
+public class PointSystemSweep {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // odd constant spreading system indices over seeds
+	private static final String HEADER = "system,scores,games,mean,stdDev,min,max"; // checkpoint column header
+
+	/**
+	 * Generators of random point systems.
+	 */
+	public enum Generator {
+		AMERITISH {
+			@Override
+			public PokerSquaresPointSystem generate(SplittableRandom random) {
+				return PokerSquaresPointSystem.getAmeritishPointSystem(random);
+			}
+		},
+		HYPERCORNER {
+			@Override
+			public PokerSquaresPointSystem generate(SplittableRandom random) {
+				return PokerSquaresPointSystem.getHypercornerPointSystem(random);
+			}
+		},
+		RANDOM {
+			@Override
+			public PokerSquaresPointSystem generate(SplittableRandom random) {
+				return PokerSquaresPointSystem.getRandomPointSystem(random);
+			}
+		},
+		SINGLE_HAND {
+			@Override
+			public PokerSquaresPointSystem generate(SplittableRandom random) {
+				return PokerSquaresPointSystem.getSingleHandPointSystem(random.nextInt(PokerHand.NUM_HANDS));
+			}
+		};
+
+		/**
+		 * Generate a point system.
+		 * @param random pseudorandom number generator
+		 * @return a generated point system
+		 */
+		public abstract PokerSquaresPointSystem generate(SplittableRandom random);
+	}
+
+	/**
+	 * Incremental summary of the mean scores of the point systems of a sweep.
+	 */
+	public static class Summary {
+		private long numSystems; // number of systems
+		private long numGames; // number of games over all systems
+		private double mean; // running mean of system mean scores
+		private double m2; // running sum of squared deviations of system mean scores (Welford)
+		private double normalizedMean; // running mean of normalized system mean scores
+		private double normalizedM2; // running sum of squared deviations of normalized system mean scores (Welford)
+		private int worstSystem = -1; // index of the system with the lowest normalized mean score
+		private double worstNormalized = Double.POSITIVE_INFINITY; // lowest normalized system mean score
+		private int bestSystem = -1; // index of the system with the highest normalized mean score
+		private double bestNormalized = Double.NEGATIVE_INFINITY; // highest normalized system mean score
+
+		/**
+		 * Add the result of one system.
+		 * @param system system index
+		 * @param scores system score table
+		 * @param games number of games played
+		 * @param systemMean mean game score
+		 */
+		synchronized void add(int system, int[] scores, long games, double systemMean) {
+			int minHand = Integer.MAX_VALUE, maxHand = Integer.MIN_VALUE;
+			for (int score : scores) {
+				minHand = Math.min(minHand, score);
+				maxHand = Math.max(maxHand, score);
+			}
+			double normalized = maxHand == minHand ? 0.5 : (systemMean - 10.0 * minHand) / (10.0 * (maxHand - minHand));
+			numSystems++;
+			numGames += games;
+			double delta = systemMean - mean;
+			mean += delta / numSystems;
+			m2 += delta * (systemMean - mean);
+			delta = normalized - normalizedMean;
+			normalizedMean += delta / numSystems;
+			normalizedM2 += delta * (normalized - normalizedMean);
+			if (normalized < worstNormalized) {
+				worstNormalized = normalized;
+				worstSystem = system;
+			}
+			if (normalized > bestNormalized) {
+				bestNormalized = normalized;
+				bestSystem = system;
+			}
+		}
+
+		/**
+		 * Get the number of systems summarized.
+		 * @return the number of systems
+		 */
+		public synchronized long getNumSystems() {
+			return numSystems;
+		}
+
+		/**
+		 * Get the mean of the system mean scores.
+		 * @return the mean of the system mean scores
+		 */
+		public synchronized double getMean() {
+			return mean;
+		}
+
+		/**
+		 * Get the standard deviation of the system mean scores.
+		 * @return the standard deviation of the system mean scores
+		 */
+		public synchronized double getStdDev() {
+			return numSystems < 2 ? 0 : Math.sqrt(m2 / (numSystems - 1));
+		}
+
+		/**
+		 * Get the mean of the normalized system mean scores.
+		 * @return the mean of the normalized system mean scores
+		 */
+		public synchronized double getNormalizedMean() {
+			return normalizedMean;
+		}
+
+		/**
+		 * Get the standard deviation of the normalized system mean scores.
+		 * @return the standard deviation of the normalized system mean scores
+		 */
+		public synchronized double getNormalizedStdDev() {
+			return numSystems < 2 ? 0 : Math.sqrt(normalizedM2 / (numSystems - 1));
+		}
+
+		/**
+		 * Get the index of the system with the lowest normalized mean score.
+		 * @return the index of the worst system, or -1 if none
+		 */
+		public synchronized int getWorstSystem() {
+			return worstSystem;
+		}
+
+		/**
+		 * Get the index of the system with the highest normalized mean score.
+		 * @return the index of the best system, or -1 if none
+		 */
+		public synchronized int getBestSystem() {
+			return bestSystem;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public synchronized String toString() {
+			return String.format("Systems: %d, Games: %d, System Mean Score: %f (SD %f), Normalized: %f (SD %f), Worst: system %d (%f), Best: system %d (%f)",
+					numSystems, numGames, mean, getStdDev(), normalizedMean, getNormalizedStdDev(), worstSystem, worstNormalized, bestSystem, bestNormalized);
+		}
+	}
+
+	private final Supplier<PokerSquaresPlayer> playerFactory; // creates one player per worker thread
+	private final Generator generator; // point system generator
+	private final long sweepSeed; // seed of the point system streams
+	private int gamesPerSystem = 100; // games played with each system
+	private long startSeed = 0L; // PokerSquares seed of the first game of each system
+	private int numThreads = Runtime.getRuntime().availableProcessors(); // number of worker threads
+	private long gameMillis = PokerSquares.GAME_MILLIS; // milliseconds given to the player for each game
+	private long pointSystemMillis = PokerSquares.POINT_SYSTEM_MILLIS; // milliseconds given to the player for each system
+	private Path checkpoint; // checkpoint file, or null if none
+
+	/**
+	 * Create a sweep of the given player over point systems of the given generator.
+	 * @param playerFactory factory creating new instances of the player
+	 * @param generator point system generator
+	 * @param sweepSeed seed of the point system streams
+	 */
+	public PointSystemSweep(Supplier<PokerSquaresPlayer> playerFactory, Generator generator, long sweepSeed) {
+		this.playerFactory = playerFactory;
+		this.generator = generator;
+		this.sweepSeed = sweepSeed;
+	}
+
+	/**
+	 * Set the number of games played with each point system (by default, 100).
+	 * @param gamesPerSystem games per system
+	 */
+	public void setGamesPerSystem(int gamesPerSystem) {
+		this.gamesPerSystem = gamesPerSystem;
+	}
+
+	/**
+	 * Set the PokerSquares seed of the first game of each system (by default, 0).
+	 * @param startSeed seed of the first game of each system
+	 */
+	public void setStartSeed(long startSeed) {
+		this.startSeed = startSeed;
+	}
+
+	/**
+	 * Set the number of worker threads (by default, the number of available processors).
+	 * @param numThreads number of worker threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Set the number of milliseconds given to the player for each game (by default, PokerSquares.GAME_MILLIS).
+	 * @param gameMillis milliseconds per game
+	 */
+	public void setGameMillis(long gameMillis) {
+		this.gameMillis = gameMillis;
+	}
+
+	/**
+	 * Set the number of milliseconds given to the player for setPointSystem (by default,
+	 * PokerSquares.POINT_SYSTEM_MILLIS).
+	 * @param pointSystemMillis milliseconds per point system
+	 */
+	public void setPointSystemMillis(long pointSystemMillis) {
+		this.pointSystemMillis = pointSystemMillis;
+	}
+
+	/**
+	 * Set the checkpoint file, from which a sweep resumes and to which completed systems are appended.
+	 * @param checkpoint checkpoint file, or null for none
+	 */
+	public void setCheckpoint(Path checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Generate the point system of the given index of this sweep.
+	 * @param system system index
+	 * @return the point system
+	 */
+	public PokerSquaresPointSystem getPointSystem(int system) {
+		return generator.generate(new SplittableRandom(sweepSeed + system * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Evaluate the player on systems 0 through numSystems - 1, skipping systems completed in the checkpoint file.
+	 * @param numSystems number of point systems
+	 * @return summary of all systems, including those loaded from the checkpoint
+	 * @throws IOException if the checkpoint cannot be read or written, or belongs to a different sweep
+	 */
+	public Summary run(final int numSystems) throws IOException {
+		final Summary summary = new Summary();
+		final BitSet done = new BitSet(numSystems);
+		final BufferedWriter out = checkpoint == null ? null : openCheckpoint(numSystems, summary, done);
+		final AtomicInteger nextSystem = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int t = 0; t < numThreads; t++)
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						PokerSquaresPlayer player = playerFactory.get();
+						int system;
+						while ((system = nextSystem.getAndIncrement()) < numSystems) {
+							if (done.get(system))
+								continue;
+							PokerSquaresPointSystem pointSystem = getPointSystem(system);
+							player.setPointSystem(pointSystem, pointSystemMillis);
+							GameStatistics statistics = BatchSimulator.runSerial(player, pointSystem, BatchSimulator.getMinPoints(pointSystem),
+									gameMillis, gamesPerSystem, startSeed);
+							int[] scores = pointSystem.getScoreTable();
+							summary.add(system, scores, statistics.getCount(), statistics.getMean());
+							if (out != null)
+								writeRow(out, system, scores, statistics);
+						}
+						return null;
+					}
+				}));
+			for (Future<Void> future : futures)
+				future.get();
+			return summary;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Sweep interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IllegalStateException("Sweep failed", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+			if (out != null)
+				out.close();
+		}
+	}
+
+	/**
+	 * Return the first line of the checkpoint of this sweep, identifying its configuration.
+	 */
+	private String getConfiguration() {
+		return String.format("# PointSystemSweep player=%s generator=%s sweepSeed=%d gamesPerSystem=%d startSeed=%d gameMillis=%d",
+				playerFactory.get().getName(), generator, sweepSeed, gamesPerSystem, startSeed, gameMillis);
+	}
+
+	/**
+	 * Load the completed systems below numSystems of the checkpoint file (if it exists) into the given summary and
+	 * set, rewrite the file without any partially written or damaged row, and return a writer appending to it.  Rows
+	 * of systems numSystems and above are kept in the file for a longer sweep but not summarized.
+	 */
+	private BufferedWriter openCheckpoint(int numSystems, Summary summary, BitSet done) throws IOException {
+		String configuration = getConfiguration();
+		List<String> rows = new ArrayList<String>();
+		if (Files.exists(checkpoint)) {
+			List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+			if (lines.size() < 2 || !lines.get(0).equals(configuration))
+				throw new IOException("Checkpoint " + checkpoint + " belongs to a different sweep: " + (lines.isEmpty() ? "(empty)" : lines.get(0)));
+			for (String line : lines.subList(2, lines.size())) {
+				String[] fields = line.split(",", -1);
+				if (fields.length != 7)
+					continue; // partially written row
+				int system;
+				int[] scores;
+				long count;
+				double mean;
+				try {
+					system = Integer.parseInt(fields[0]);
+					String[] scoreFields = fields[1].trim().split(" ");
+					scores = new int[scoreFields.length];
+					for (int i = 0; i < scores.length; i++)
+						scores[i] = Integer.parseInt(scoreFields[i]);
+					count = Long.parseLong(fields[2]);
+					mean = Double.parseDouble(fields[3]);
+					for (int i = 4; i < fields.length; i++)
+						Double.parseDouble(fields[i]);
+				} catch (NumberFormatException e) {
+					continue; // damaged row
+				}
+				if (system < 0 || done.get(system))
+					continue;
+				done.set(system);
+				rows.add(line);
+				if (system < numSystems)
+					summary.add(system, scores, count, mean);
+			}
+		}
+		Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			writer.write(configuration + "\n" + HEADER + "\n");
+			for (String row : rows)
+				writer.write(row + "\n");
+		}
+		Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Append and flush the checkpoint row of a completed system.
+	 */
+	private static void writeRow(BufferedWriter out, int system, int[] scores, GameStatistics statistics) throws IOException {
+		StringBuilder row = new StringBuilder().append(system).append(',');
+		for (int i = 0; i < scores.length; i++)
+			row.append(i == 0 ? "" : " ").append(scores[i]);
+		row.append(',').append(statistics.getCount()).append(',').append(statistics.getMean()).append(',').append(statistics.getStdDev())
+				.append(',').append(statistics.getMin()).append(',').append(statistics.getMax()).append('\n');
+		synchronized (out) {
+			out.write(row.toString());
+			out.flush();
+		}
+	}
+
+	/**
+	 * Run a sweep from the command line and print its summary.
+	 * @param args [-generator AMERITISH|HYPERCORNER|RANDOM|SINGLE_HAND] [-systems n] [-games n] [-seed s] [-threads n]
+	 * [-millis gameMillis] [-checkpoint file] [player class name]
+	 * @throws Exception if the player cannot be created or the checkpoint cannot be used
+	 */
+	public static void main(String[] args) throws Exception {
+		Generator generator = Generator.AMERITISH;
+		int numSystems = 10000;
+		int games = 100;
+		long seed = 0L;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long millis = PokerSquares.GAME_MILLIS;
+		Path checkpoint = null;
+		String playerClass = "RandomPlayer";
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-generator"))
+				generator = Generator.valueOf(args[++i]);
+			else if (args[i].equals("-systems"))
+				numSystems = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-games"))
+				games = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-millis"))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-checkpoint"))
+				checkpoint = Paths.get(args[++i]);
+			else
+				playerClass = args[i];
+		}
+		final Class<? extends PokerSquaresPlayer> type = Class.forName(playerClass).asSubclass(PokerSquaresPlayer.class);
+		PointSystemSweep sweep = new PointSystemSweep(new Supplier<PokerSquaresPlayer>() {
+			@Override
+			public PokerSquaresPlayer get() {
+				try {
+					return type.getConstructor().newInstance();
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalStateException("Cannot create player " + type.getName(), e);
+				}
+			}
+		}, generator, seed);
+		sweep.setGamesPerSystem(games);
+		sweep.setNumThreads(threads);
+		sweep.setGameMillis(millis);
+		sweep.setCheckpoint(checkpoint);
+		long start = System.nanoTime();
+		Summary summary = sweep.run(numSystems);
+		System.out.println(summary);
+		System.out.printf("%.1f s\n", (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,352 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * PointSystemTables - point-system-specific tables precomputed during the time a player is given in
+ * {@link PokerSquaresPlayer#setPointSystem(PokerSquaresPointSystem, long)}, for O(1) queries during getPlay.
+ *
+ * The expected line score table gives, for each partial line of fewer than five cards, the expected score of the
+ * hand it completes to when its empty cells are filled with cards drawn at random from the rest of a full deck.
+ * Since rank and suit symmetry make this value depend only on the multiset of ranks in the line and on whether a
+ * flush is still possible (all cards of one suit), partial lines are keyed by a signature of these: the ranks in
+ * ascending order as base-14 digits (13 for each missing card), times 2, plus 1 if a flush is still possible.
+ *
+ * Exact values are computed by enumerating all completions on background threads, fullest lines first.  If the
+ * time budget runs out or the calling thread is interrupted, the remaining entries keep the score of the partial
+ * line as it stands, which is the value the grid score already assigns it.  The background threads (one per
+ * available processor) are shared by all computations, so that players setting point systems concurrently do not
+ * multiply them.  The complete tables of the MAX_CACHED most recently used score tables are shared between all
+ * players using equal score tables.
+ */
+public class PointSystemTables {
+
+	private static final int SIZE = PokerSquares.SIZE; // number of cards in a line
+	private static final int NO_RANK = Card.NUM_RANKS; // signature digit of a missing card
+	private static final int RADIX = Card.NUM_RANKS + 1; // signature digit radix
+	private static final int NUM_SIGNATURES = 2 * RADIX * RADIX * RADIX * RADIX; // signatures of lines of up to 4 cards
+	private static final double SAFETY_FRACTION = 0.9; // fraction of the time budget used
+	private static final int MAX_CACHED = 4; // maximum number of complete tables kept for reuse (about 600 KB each)
+	private static final LinkedHashMap<List<Integer>, PointSystemTables> completeTables = new LinkedHashMap<List<Integer>, PointSystemTables>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Integer>, PointSystemTables> eldest) {
+			return size() > MAX_CACHED;
+		}
+	}; // complete tables by score table, least recently used first (guarded by itself)
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+			Runtime.getRuntime().availableProcessors(), 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "PointSystemTables");
+			thread.setDaemon(true);
+			return thread;
+		}
+	}); // background threads shared by all computations
+
+	static {
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	private final int[] scores; // point system score table
+	private final double[] expectedLineScores; // expected final line score indexed by signature
+	private int numExact; // number of exactly computed signatures
+	private int numSignatures; // number of valid signatures
+
+	/**
+	 * Create tables with the current-score fallback values for the given score table.
+	 */
+	private PointSystemTables(int[] scores) {
+		this.scores = scores;
+		this.expectedLineScores = new double[NUM_SIGNATURES];
+	}
+
+	/**
+	 * Return the tables for the given point system, computing them on background threads for at most (a safety
+	 * fraction of) the given time.  Entries not computed in time hold fallback values.
+	 * @param system point system
+	 * @param millis time budget in milliseconds
+	 * @return the tables for the given point system
+	 */
+	public static PointSystemTables compute(PokerSquaresPointSystem system, long millis) {
+		long deadline = System.nanoTime() + (long) (millis * SAFETY_FRACTION) * 1000000L;
+		int[] scores = system.getScoreTable();
+		List<Integer> key = new ArrayList<Integer>();
+		for (int points : scores)
+			key.add(points);
+		PointSystemTables tables;
+		synchronized (completeTables) {
+			tables = completeTables.get(key);
+		}
+		if (tables != null)
+			return tables;
+
+		tables = new PointSystemTables(scores);
+		List<int[]> ranksList = new ArrayList<int[]>();
+		List<Boolean> flushList = new ArrayList<Boolean>();
+		for (int numCards = SIZE - 1; numCards >= 0; numCards--) // fullest lines first: cheapest and most often queried
+			enumerateSignatures(new int[numCards], 0, 0, ranksList, flushList);
+		tables.numSignatures = ranksList.size();
+		for (int i = 0; i < ranksList.size(); i++) {
+			int[] cardIds = representative(ranksList.get(i), flushList.get(i));
+			int[] hand = new int[SIZE];
+			Arrays.fill(hand, PackedGrid.EMPTY);
+			System.arraycopy(cardIds, 0, hand, 0, cardIds.length);
+			tables.expectedLineScores[signature(ranksList.get(i), flushList.get(i))] = scores[PokerHandClassifier.getPokerHandId(hand[0], hand[1], hand[2], hand[3], hand[4])];
+		}
+
+		List<Future<Double>> futures = new ArrayList<Future<Double>>();
+		for (int i = 0; i < ranksList.size(); i++)
+			futures.add(executor.submit(new ExpectedScoreTask(scores, representative(ranksList.get(i), flushList.get(i)))));
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				Double value = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if (value != null) {
+					tables.expectedLineScores[signature(ranksList.get(i), flushList.get(i))] = value;
+					tables.numExact++;
+				}
+			}
+		} catch (TimeoutException e) {
+			// keep fallback values for the remaining signatures
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Table computation failed", e.getCause());
+		} finally {
+			for (Future<Double> future : futures) // dequeue unstarted tasks and interrupt running ones
+				future.cancel(true);
+		}
+		if (tables.isComplete())
+			synchronized (completeTables) {
+				completeTables.put(key, tables);
+			}
+		return tables;
+	}
+
+	/**
+	 * Computes the exact expected final score of a partial line over all completions from the rest of the deck.
+	 * Returns null if interrupted.
+	 */
+	private static class ExpectedScoreTask implements Callable<Double> {
+		private final int[] scores; // point system score table
+		private final int[] hand = new int[SIZE]; // hand card ids, the first numCards fixed
+		private final int numCards; // number of cards of the partial line
+		private final int[] deck; // card ids not in the partial line
+		private long total; // sum of completion scores
+		private long count; // number of completions
+
+		ExpectedScoreTask(int[] scores, int[] cardIds) {
+			this.scores = scores;
+			this.numCards = cardIds.length;
+			System.arraycopy(cardIds, 0, hand, 0, numCards);
+			long used = 0L;
+			for (int cardId : cardIds)
+				used |= 1L << cardId;
+			deck = new int[Card.NUM_CARDS - numCards];
+			for (int cardId = 0, n = 0; cardId < Card.NUM_CARDS; cardId++)
+				if ((used & 1L << cardId) == 0)
+					deck[n++] = cardId;
+		}
+
+		@Override
+		public Double call() {
+			for (int i = 0; i < deck.length; i++) { // first drawn card (checking for interruption between subtrees)
+				if (Thread.currentThread().isInterrupted())
+					return null;
+				hand[numCards] = deck[i];
+				complete(numCards + 1, i + 1);
+			}
+			return (double) total / count;
+		}
+
+		/**
+		 * Enumerate the completions of hand[0..filled) using deck cards from index start on.
+		 */
+		private void complete(int filled, int start) {
+			if (filled == SIZE) {
+				total += scores[PokerHandClassifier.getPokerHandId(hand[0], hand[1], hand[2], hand[3], hand[4])];
+				count++;
+				return;
+			}
+			for (int i = start; i < deck.length; i++) {
+				hand[filled] = deck[i];
+				complete(filled + 1, i + 1);
+			}
+		}
+	}
+
+	/**
+	 * Add the rank multisets (ascending, at most 4 of each rank) of the given length and their valid flush flags.
+	 */
+	private static void enumerateSignatures(int[] ranks, int index, int minRank, List<int[]> ranksList, List<Boolean> flushList) {
+		if (index == ranks.length) {
+			boolean distinct = true;
+			for (int i = 1; i < ranks.length; i++)
+				distinct &= ranks[i] != ranks[i - 1];
+			if (distinct) {
+				ranksList.add(ranks.clone());
+				flushList.add(true);
+			}
+			if (ranks.length >= 2) { // lines of fewer than 2 cards can always flush
+				ranksList.add(ranks.clone());
+				flushList.add(false);
+			}
+			return;
+		}
+		for (int rank = minRank; rank < Card.NUM_RANKS; rank++) {
+			if (index >= Card.NUM_SUITS && ranks[index - Card.NUM_SUITS] == rank)
+				continue; // no more than 4 cards of a rank
+			ranks[index] = rank;
+			enumerateSignatures(ranks, index + 1, rank, ranksList, flushList);
+		}
+	}
+
+	/**
+	 * Return card ids with the given ascending ranks, all of suit 0 if flush, and otherwise of cycling suits (which
+	 * gives equal ranks distinct suits and at least two suits).
+	 */
+	private static int[] representative(int[] ranks, boolean flush) {
+		int[] cardIds = new int[ranks.length];
+		for (int i = 0; i < ranks.length; i++)
+			cardIds[i] = (flush ? 0 : i % Card.NUM_SUITS) * Card.NUM_RANKS + ranks[i];
+		return cardIds;
+	}
+
+	/**
+	 * Return the signature of the given ascending ranks (at most 4) and flush flag.
+	 */
+	private static int signature(int[] ranks, boolean flushPossible) {
+		int signature = 0;
+		for (int i = 0; i < SIZE - 1; i++)
+			signature = signature * RADIX + (i < ranks.length ? ranks[i] : NO_RANK);
+		return 2 * signature + (flushPossible ? 1 : 0);
+	}
+
+	/**
+	 * Return the signature of a partial line of fewer than five cards given its rank bit masks.  Bit r of each mask
+	 * is set if the line contains at least one, two, three or four cards of rank r, respectively.
+	 * @param rankMask mask of ranks present at least once
+	 * @param two mask of ranks present at least twice
+	 * @param three mask of ranks present at least three times
+	 * @param four mask of ranks present four times
+	 * @param flushPossible whether all cards of the line are of one suit
+	 * @return the signature of the partial line
+	 */
+	public static int getSignature(int rankMask, int two, int three, int four, boolean flushPossible) {
+		int signature = 0, digits = 0;
+		for (int rank = 0; rank < Card.NUM_RANKS; rank++) {
+			int bit = 1 << rank;
+			if ((rankMask & bit) == 0)
+				continue;
+			int count = 1 + ((two & bit) != 0 ? 1 : 0) + ((three & bit) != 0 ? 1 : 0) + ((four & bit) != 0 ? 1 : 0);
+			for (int i = 0; i < count; i++)
+				signature = signature * RADIX + rank;
+			digits += count;
+		}
+		for (; digits < SIZE - 1; digits++)
+			signature = signature * RADIX + NO_RANK;
+		return 2 * signature + (flushPossible ? 1 : 0);
+	}
+
+	/**
+	 * Return the signature of the given partial line (null for empty cells, fewer than five cards).
+	 * @param line Card array of line cells
+	 * @return the signature of the partial line
+	 */
+	public static int getSignature(Card[] line) {
+		int rankMask = 0, two = 0, three = 0, four = 0, suitMask = 0;
+		for (Card card : line) {
+			if (card == null)
+				continue;
+			int bit = 1 << card.getRank();
+			four |= three & bit;
+			three |= two & bit;
+			two |= rankMask & bit;
+			rankMask |= bit;
+			suitMask |= 1 << card.getSuit();
+		}
+		return getSignature(rankMask, two, three, four, Integer.bitCount(suitMask) <= 1);
+	}
+
+	/**
+	 * Get the expected final score of a partial line with the given signature.
+	 * @param signature partial line signature
+	 * @return the expected final score of the line
+	 */
+	public double getExpectedLineScore(int signature) {
+		return expectedLineScores[signature];
+	}
+
+	/**
+	 * Get the expected final score of the given line (null for empty cells).  The score of complete lines is exact.
+	 * @param line Card array of line cells
+	 * @return the expected final score of the line
+	 */
+	public double getExpectedLineScore(Card[] line) {
+		int numCards = 0;
+		for (Card card : line)
+			if (card != null)
+				numCards++;
+		if (numCards == SIZE)
+			return scores[PokerHandClassifier.getPokerHandId(line)];
+		return expectedLineScores[getSignature(line)];
+	}
+
+	/**
+	 * Get the expected final score of the given line of a scorer grid (rows 0 through 4 followed by columns 0
+	 * through 4).  The score of complete lines is exact.
+	 * @param scorer scorer of the grid
+	 * @param line line index
+	 * @return the expected final score of the line
+	 */
+	public double getExpectedLineScore(IncrementalScorer scorer, int line) {
+		if (scorer.getLineCardCount(line) == SIZE)
+			return scorer.getHandScore(line);
+		return expectedLineScores[scorer.getLineSignature(line)];
+	}
+
+	/**
+	 * Get the number of partial line signatures with exactly computed expected scores.
+	 * @return the number of exactly computed signatures
+	 */
+	public int getNumExact() {
+		return numExact;
+	}
+
+	/**
+	 * Return whether all expected scores were computed exactly.
+	 * @return whether all expected scores were computed exactly
+	 */
+	public boolean isComplete() {
+		return numExact == numSignatures;
+	}
+
+	/**
+	 * Compute the tables for the British point system, report timing, and print the expected line scores of a few
+	 * partial lines.
+	 * @param args (not used)
+	 */
+	public static void main(String[] args) {
+		PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+		System.out.println(system);
+		long start = System.nanoTime();
+		PointSystemTables tables = compute(system, PokerSquares.POINT_SYSTEM_MILLIS);
+		System.out.printf("%d of %d signatures computed exactly in %.3f s%n", tables.numExact, tables.numSignatures, (System.nanoTime() - start) / 1e9);
+		String[][] lines = {{}, {"AS"}, {"AS", "AH"}, {"AS", "KS"}, {"AS", "KH"}, {"TS", "JS", "QS", "KS"}, {"2C", "2D", "2H", "2S"}};
+		for (String[] line : lines) {
+			Card[] cards = new Card[SIZE];
+			for (int i = 0; i < line.length; i++)
+				cards[i] = Card.getCard(line[i]);
+			System.out.printf("%-16s %8.4f%n", Arrays.toString(line), tables.getExpectedLineScore(cards));
+		}
+	}
+}
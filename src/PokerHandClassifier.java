@@ -0,0 +1,230 @@
+/**
+ * PokerHandClassifier - Table-driven, allocation-free classification of complete or partial five-card Poker hands.
+ * Each hand is reduced to a rank bit mask, three "at least k of a rank" bit masks, and a suit-uniformity bit.
+ * Hands with all-distinct ranks are classified by a single lookup indexed by the suit-uniformity bit and the rank mask;
+ * all other hands are classified by a tiny lookup indexed by the counts of paired, tripled and quadrupled ranks.
+ * Both tables are built at class load time from {@link PokerHand#getPokerHand(Card[])} itself, so classifications
+ * agree with that method by construction.
+ */
+public final class PokerHandClassifier {
+
+	private static final int HAND_SIZE = PokerSquares.SIZE; // number of cards in a complete hand
+	private static final int FLUSH_BIT = 1 << Card.NUM_RANKS; // index offset for suit-uniform (flush) hands in distinctTable
+
+	private static final PokerHand[] HANDS = PokerHand.values(); // hand classifications indexed by identification number
+	private static final byte[] distinctTable = new byte[FLUSH_BIT << 1]; // hand ids for all-distinct rank masks (plus flush bit)
+	private static final byte[] patternTable = new byte[16]; // hand ids for repeated-rank patterns (n2 | n3 << 2 | n4 << 3)
+
+	static {
+		// Enumerate all rank multisets of size 0 through 5 (at most 4 of a rank) and classify a representative hand of each.
+		java.util.Arrays.fill(patternTable, (byte) -1);
+		enumerate(new int[Card.NUM_RANKS], 0, 0);
+	}
+
+	private PokerHandClassifier() {
+	}
+
+	/**
+	 * Recursively enumerate rank count vectors and record the classification of representative hands.
+	 * @param rankCounts rank counts under construction
+	 * @param rank next rank to assign a count to
+	 * @param numCards number of cards assigned so far
+	 */
+	private static void enumerate(int[] rankCounts, int rank, int numCards) {
+		if (rank == Card.NUM_RANKS) {
+			record(rankCounts, numCards);
+			return;
+		}
+		for (int count = 0; count <= Card.NUM_SUITS && numCards + count <= HAND_SIZE; count++) {
+			rankCounts[rank] = count;
+			enumerate(rankCounts, rank + 1, numCards + count);
+		}
+		rankCounts[rank] = 0;
+	}
+
+	/**
+	 * Build representative hands for the given rank counts, classify them with the reference classifier, and store
+	 * the results in the lookup tables.
+	 * @param rankCounts rank counts of the hand
+	 * @param numCards number of cards in the hand
+	 */
+	private static void record(int[] rankCounts, int numCards) {
+		Card[] hand = new Card[HAND_SIZE];
+		int i = 0;
+		int rankMask = 0, two = 0, three = 0, four = 0;
+		for (int rank = 0; rank < Card.NUM_RANKS; rank++)
+			for (int suit = 0; suit < rankCounts[rank]; suit++) {
+				hand[i++] = Card.getCard(suit * Card.NUM_RANKS + rank);
+				int bit = 1 << rank;
+				four |= three & bit;
+				three |= two & bit;
+				two |= rankMask & bit;
+				rankMask |= bit;
+			}
+		if (two == 0) {
+			if (numCards == HAND_SIZE) {
+				// one suit-uniform and one mixed-suit representative
+				distinctTable[FLUSH_BIT | rankMask] = (byte) PokerHand.getPokerHandId(hand);
+				hand[0] = Card.getCard(Card.NUM_RANKS + hand[0].getRank());
+			}
+			distinctTable[rankMask] = (byte) PokerHand.getPokerHandId(hand);
+		}
+		else {
+			int index = patternIndex(two, three, four);
+			byte id = (byte) PokerHand.getPokerHandId(hand);
+			if (patternTable[index] != -1 && patternTable[index] != id)
+				throw new IllegalStateException("Inconsistent classification for rank pattern " + index);
+			patternTable[index] = id;
+		}
+	}
+
+	/**
+	 * Return the patternTable index for the given "at least 2/3/4 of a rank" masks.
+	 */
+	private static int patternIndex(int two, int three, int four) {
+		return Integer.bitCount(two) | Integer.bitCount(three) << 2 | Integer.bitCount(four) << 3;
+	}
+
+	/**
+	 * Classify the five-card (possibly partial) hand given as individual cards, any of which may be null.
+	 * @return classification identification number of the given Poker hand
+	 */
+	public static int getPokerHandId(Card c0, Card c1, Card c2, Card c3, Card c4) {
+		return getPokerHandId(cardId(c0), cardId(c1), cardId(c2), cardId(c3), cardId(c4));
+	}
+
+	/**
+	 * Return the identification number of the given card, or {@link PackedGrid#EMPTY} for null.
+	 */
+	private static int cardId(Card card) {
+		return card == null ? PackedGrid.EMPTY : card.getCardId();
+	}
+
+	/**
+	 * Classify the five-card (possibly partial) hand given as card identification numbers, any of which may be
+	 * {@link PackedGrid#EMPTY}.
+	 * @return classification identification number of the given Poker hand
+	 */
+	public static int getPokerHandId(int id0, int id1, int id2, int id3, int id4) {
+		int rankMask = 0, two = 0, three = 0, four = 0, suitMask = 0, numCards = 0;
+		for (int i = 0; i < HAND_SIZE; i++) {
+			int cardId = i == 0 ? id0 : i == 1 ? id1 : i == 2 ? id2 : i == 3 ? id3 : id4;
+			if (cardId == PackedGrid.EMPTY)
+				continue;
+			int bit = 1 << cardId % Card.NUM_RANKS;
+			four |= three & bit;
+			three |= two & bit;
+			two |= rankMask & bit;
+			rankMask |= bit;
+			suitMask |= 1 << cardId / Card.NUM_RANKS;
+			numCards++;
+		}
+		return getPokerHandId(rankMask, two, three, four, numCards == HAND_SIZE && Integer.bitCount(suitMask) == 1);
+	}
+
+	/**
+	 * Classify a hand given its rank bit masks.  Bit r of each mask is set if the hand contains at least one, two,
+	 * three or four cards of rank r, respectively.
+	 * @param rankMask mask of ranks present at least once
+	 * @param two mask of ranks present at least twice
+	 * @param three mask of ranks present at least three times
+	 * @param four mask of ranks present four times
+	 * @param flush whether the hand is complete and all of one suit
+	 * @return classification identification number of the described Poker hand
+	 */
+	static int getPokerHandId(int rankMask, int two, int three, int four, boolean flush) {
+		if (two == 0)
+			return distinctTable[flush ? FLUSH_BIT | rankMask : rankMask];
+		return patternTable[patternIndex(two, three, four)];
+	}
+
+	/**
+	 * Classify the given five-card Card array (possibly with null values).  Arrays of other lengths are
+	 * delegated to {@link PokerHand#getPokerHand(Card[])}.
+	 * @param hand a Poker hand represented as an array of Card objects which may contain null values
+	 * @return classification identification number of the given Poker hand
+	 */
+	public static int getPokerHandId(Card[] hand) {
+		if (hand.length != HAND_SIZE)
+			return PokerHand.getPokerHandId(hand);
+		return getPokerHandId(hand[0], hand[1], hand[2], hand[3], hand[4]);
+	}
+
+	/**
+	 * Classify the given five-card Card array (possibly with null values).
+	 * @param hand a Poker hand represented as an array of Card objects which may contain null values
+	 * @return classification of the given Poker hand
+	 */
+	public static PokerHand getPokerHand(Card[] hand) {
+		return HANDS[getPokerHandId(hand)];
+	}
+
+	/**
+	 * Classify the given grid row (possibly with null values).
+	 * @param grid 2D Card array representing play grid
+	 * @param row row index
+	 * @return classification identification number of the row hand
+	 */
+	public static int getRowHandId(Card[][] grid, int row) {
+		Card[] r = grid[row];
+		return getPokerHandId(r[0], r[1], r[2], r[3], r[4]);
+	}
+
+	/**
+	 * Classify the given grid column (possibly with null values).
+	 * @param grid 2D Card array representing play grid
+	 * @param col column index
+	 * @return classification identification number of the column hand
+	 */
+	public static int getColumnHandId(Card[][] grid, int col) {
+		return getPokerHandId(grid[0][col], grid[1][col], grid[2][col], grid[3][col], grid[4][col]);
+	}
+
+	/**
+	 * Classify the given packed grid row (possibly with empty positions).
+	 * @param grid packed play grid
+	 * @param row row index
+	 * @return classification identification number of the row hand
+	 */
+	public static int getRowHandId(PackedGrid grid, int row) {
+		int pos = row * HAND_SIZE;
+		return getPokerHandId(grid.get(pos), grid.get(pos + 1), grid.get(pos + 2), grid.get(pos + 3), grid.get(pos + 4));
+	}
+
+	/**
+	 * Classify the given packed grid column (possibly with empty positions).
+	 * @param grid packed play grid
+	 * @param col column index
+	 * @return classification identification number of the column hand
+	 */
+	public static int getColumnHandId(PackedGrid grid, int col) {
+		return getPokerHandId(grid.get(0, col), grid.get(1, col), grid.get(2, col), grid.get(3, col), grid.get(4, col));
+	}
+
+	/**
+	 * Verify the lookup classifier against {@link PokerHand#getPokerHand(Card[])} for every complete five-card hand
+	 * and every partial hand of each size, with null values in every combination of positions.
+	 * @param args (not used)
+	 */
+	public static void main(String[] args) {
+		Card[] deck = Card.getAllCards();
+		Card[] hand = new Card[HAND_SIZE];
+		long checked = 0;
+		int n = deck.length;
+		for (int a = 0; a < n; a++)
+			for (int b = a + 1; b < n; b++)
+				for (int c = b + 1; c < n; c++)
+					for (int d = c + 1; d < n; d++)
+						for (int e = d + 1; e < n; e++) {
+							Card[] cards = {deck[a], deck[b], deck[c], deck[d], deck[e]};
+							for (int mask = 0; mask < 1 << HAND_SIZE; mask++) { // each subset of present cards
+								for (int i = 0; i < HAND_SIZE; i++)
+									hand[i] = (mask & 1 << i) == 0 ? cards[i] : null;
+								if (getPokerHand(hand) != PokerHand.getPokerHand(hand))
+									throw new IllegalStateException("Mismatch for " + java.util.Arrays.toString(hand));
+								checked++;
+							}
+						}
+		System.out.println("Verified " + checked + " hands.");
+	}
+}
@@ -1,9 +1,20 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Scanner;
-import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 /* A version of the solitaire game "Poker Squares" with variable point systems.
  * Author: Todd W. Neller
@@ -46,14 +57,29 @@ public class PokerSquares {
 	public static final int SIZE = 5; // square grid size
 	public static final long POINT_SYSTEM_MILLIS = 10000L; 
 	public static final long GAME_MILLIS = 30000L; // a total of 30 seconds (30000 milliseconds) per game
+	private static final Metrics.Timer MOVE_TIMER = Metrics.timer("PokerSquares.move"); // getPlay() latency
+	private static final Metrics.Histogram HEADROOM_MILLIS = Metrics.histogram("PokerSquares.headroomMillis"); // game time remaining after each move
+	private static final Metrics.Histogram FINAL_HEADROOM_MILLIS = Metrics.histogram("PokerSquares.finalHeadroomMillis"); // game time remaining after the last move
+	private static final Metrics.Counter GAMES = Metrics.counter("PokerSquares.games"); // games started
+	private static final Metrics.Counter TIMEOUTS = Metrics.counter("PokerSquares.timeouts"); // games lost by running out of time
 
 	private PokerSquaresPlayer player; // current player
+	private final RefereeExecutor referee = RefereeExecutor.getShared(); // executor running player code with time limits
 	private PokerSquaresPointSystem system; // current point system
 	private long gameMillis = GAME_MILLIS; // maximum milliseconds for current game
 	private boolean verbose = false; // whether or not to print move-by-move transcript of the game
 	private Card[][] grid = new Card[SIZE][SIZE]; // current game grid
+	private IncrementalScorer scorer; // running score of current game grid
 	private Random random = new Random(); // current game random number generator
+	private final int[] deck = new int[Card.NUM_CARDS]; // card identification numbers of the deck, dealt from the end
+	private final DeckView deckView = new DeckView(deck); // read-only view of the undealt deck
 	private int minPoints; // minimum possible score for current point system.
+	private boolean disqualified; // whether a cancelled call of the player leaked, so that the player can no longer be called
+	private long seed = new SplittableRandom().nextLong(); // seed of next game deal
+	private GameResultSink sink; // destination of game records, or null if games are not recorded
+	private byte[] moveCardIds = new byte[SIZE * SIZE]; // card id of each move of the current game
+	private byte[] movePositions = new byte[SIZE * SIZE]; // row-major position of each move of the current game
+	private int[] moveMillis = new int[SIZE * SIZE]; // milliseconds taken by the player for each move of the current game
 
 	/**
 	 * Create a PokerSquares game with a given player and point system.
@@ -68,55 +94,106 @@ public class PokerSquares {
 			if (points < minPoints)
 				minPoints = points;
 		minPoints *= 10;
+		scorer = new IncrementalScorer(system);
 		final PokerSquaresPlayer PLAYER = player;
 		final PokerSquaresPointSystem SYSTEM = system;
-		Thread thread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				PLAYER.setPointSystem(SYSTEM, POINT_SYSTEM_MILLIS);
-			}
-		});
-		thread.start();
-		try {
-			thread.join(POINT_SYSTEM_MILLIS);
+		try { // (precomputation is cancelled, not fatal, if it runs out of time)
+			referee.call(new Callable<Void>() {
+				@Override
+				public Void call() {
+					PLAYER.setPointSystem(SYSTEM, POINT_SYSTEM_MILLIS);
+					return null;
+				}
+			}, POINT_SYSTEM_MILLIS, player.getName() + ".setPointSystem");
+		} catch (TimeoutException e) {
+			System.err.println("Point system precomputation cancelled at time limit");
+			disqualify(e);
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
 		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Thread.currentThread().interrupt();
 		}
 	}
 
 	/**
-	 * Play a game of Poker Squares and return the final game score.
+	 * Set the destination of game records.  After each game, a GameRecord is passed to the sink.
+	 * @param sink destination of game records, or null if games are not recorded
+	 */
+	public void setResultSink(GameResultSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Play a game of Poker Squares and return the final game score.  The deal and the player's seed are determined
+	 * by the current seed, which is then incremented for the next game.
+	 * If a result sink is set, the game record is passed to it.
 	 * @return final game score
 	 */
 	public int play() {
-		try {
-			player.init();
-
-			// shuffle deck
-			Stack<Card> deck = new Stack<Card>();
-			for (Card card : Card.getAllCards())
-				deck.push(card);
-			Collections.shuffle(deck, random);
+		long seed = this.seed++;
+		int score = playMoves(seed);
+		if (sink != null) {
+			byte[] handIds = new byte[2 * SIZE];
+			for (int line = 0; line < handIds.length; line++)
+				handIds[line] = (byte) scorer.getHandId(line);
+			int numMoves = scorer.getNumCards();
+			try {
+				sink.accept(new GameRecord(seed, player.getName(), system.getScoreTable(), numMoves,
+						Arrays.copyOf(moveCardIds, numMoves), Arrays.copyOf(movePositions, numMoves),
+						Arrays.copyOf(moveMillis, numMoves), handIds, score));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return score;
+	}
 
+	/**
+	 * Play the moves of a game of Poker Squares and return the final game score.
+	 * @param seed seed of the game deal
+	 * @return final game score
+	 */
+	private int playMoves(long seed) {
+		try {
 			// clear grid
 			for (int row = 0; row < SIZE; row++)
 				for (int col = 0; col < SIZE; col++)
 					grid[row][col] = null;
+			scorer.clear();
+			if (disqualified) // (a leaked call may still be changing the player's state)
+				return minPoints;
+
+			random.setSeed(seed);
+			player.setSeed(getPlayerSeed(seed));
+			player.init();
+			GAMES.increment();
+
+			// shuffle deck
+			DeckView.shuffle(deck, random);
+			deckView.setNumDealt(0);
+			player.setDeckView(deckView);
 
 			// play game
 			long millisRemaining = gameMillis;
 			int cardsPlaced = 0;
 			while (cardsPlaced < SIZE * SIZE) {
-				Card card = deck.pop();
+				Card card = Card.getCard(deck[deck.length - 1 - cardsPlaced]);
+				deckView.setNumDealt(cardsPlaced + 1);
 				long startTime = System.currentTimeMillis();
+				long timerStart = MOVE_TIMER.start();
 				int[] play;
-				if(player instanceof GeneticPlayer) {
-					play = ((GeneticPlayer) player).getPlay(card, millisRemaining, deck);
-				} else {
-					play = player.getPlay(card, millisRemaining);
+				try {
+					play = getPlay(card, millisRemaining);
+				} catch (TimeoutException e) { // cancelled at the end of the game time
+					play = null;
+					disqualify(e);
 				}
-				millisRemaining -= System.currentTimeMillis() - startTime;
-				if (millisRemaining < 0) { // times out
+				MOVE_TIMER.stop(timerStart);
+				long millis = System.currentTimeMillis() - startTime;
+				millisRemaining -= millis;
+				HEADROOM_MILLIS.record(millisRemaining);
+				if (play == null || millisRemaining < 0) { // times out
+					TIMEOUTS.increment();
 					System.err.println("Player Out of Time");
 					return minPoints;
 				}
@@ -125,15 +202,22 @@ public class PokerSquares {
 					return minPoints;
 				}
 				grid[play[0]][play[1]] = card;
+				scorer.place(card, play[0], play[1]);
+				moveCardIds[cardsPlaced] = (byte) card.getCardId();
+				movePositions[cardsPlaced] = (byte) (play[0] * SIZE + play[1]);
+				moveMillis[cardsPlaced] = (int) millis;
 				cardsPlaced++;
 				if (verbose) {
 					system.printGrid(grid);
 					System.out.println();
 				}
 			}
-			System.out.println("\n\n\n");
-			system.printGrid(grid);
-			return system.getScore(grid);
+			FINAL_HEADROOM_MILLIS.record(millisRemaining);
+			if (verbose) {
+				System.out.println("\n\n\n");
+				system.printGrid(grid);
+			}
+			return scorer.getScore();
 		}
 		catch (Exception e) {
 			System.err.println("Exception thrown by " + player.getName() + ":");
@@ -143,6 +227,39 @@ public class PokerSquares {
 	}
 
 
+	/**
+	 * Disqualify the player from all later games, which score the minimum points, if the given cancellation left its
+	 * call running.
+	 * @param e cancellation of a player call
+	 */
+	private void disqualify(TimeoutException e) {
+		if (e instanceof RefereeExecutor.LeakedCallException) {
+			disqualified = true;
+			System.err.println("Player " + player.getName() + " disqualified: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the player's play of the given card on a referee thread, cancelling it when the game time runs out.
+	 * @param card card to play
+	 * @param millisRemaining game time remaining in milliseconds
+	 * @return the player's play
+	 * @throws TimeoutException if the player ran out of time
+	 * @throws Exception if the player threw an exception
+	 */
+	private int[] getPlay(final Card card, final long millisRemaining) throws Exception {
+		try {
+			return referee.call(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					return player.getPlay(card, millisRemaining);
+				}
+			}, millisRemaining, player.getName() + ".getPlay");
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
 	/**
 	 * Play a sequence of games, collecting and reporting statistics.
 	 * @param numGames number of games to play
@@ -159,8 +276,7 @@ public class PokerSquares {
 		double scoreMean = 0;
 		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
 		for (int i = 0; i < numGames; i++) {
-			setSeed(startSeed + i);
-			int score = play();
+			int score = playGame(startSeed + i);
 			scores[i] = score;
 			scoreMean += score;
 			if (scores[i] < min) min = scores[i];
@@ -197,51 +313,254 @@ public class PokerSquares {
 			ArrayList<PokerSquaresPlayer> players,
 			ArrayList<PokerSquaresPointSystem> systems,
 			int gamesPerSystem, long startSeed) {
+		return playTournament(players, systems, gamesPerSystem, startSeed, (GameResultSink) null);
+	}
+
+	/**
+	 * Hold a Poker Squares tournament as in {@link #playTournament(ArrayList, ArrayList, int, long)}, passing the
+	 * record of every game to the given result sink.
+	 * @param players Poker Squares players taking part in the tournament
+	 * @param systems Poker Squares point systems used to evaluate players in the tournament
+	 * @param gamesPerSystem the number of games that will be played by each player with each point system
+	 * @param startSeed the start seed for the pseudorandom number generator that generates card deals
+	 * @param sink destination of game records, or null if games are not recorded
+	 * @return the sum of the tournament scores for each of the given players
+	 */
+	public static double[] playTournament(
+			ArrayList<PokerSquaresPlayer> players,
+			ArrayList<PokerSquaresPointSystem> systems,
+			int gamesPerSystem, long startSeed, GameResultSink sink) {
 		double[] tournamentScores = new double[players.size()];
+		String[] names = new String[players.size()];
+		for (int i = 0; i < players.size(); i++)
+			names[i] = players.get(i).getName();
 		for (PokerSquaresPointSystem system : systems) { // for each point system
 			System.out.println("Point System:\n" + system);
 			int[] totalScores = new int[players.size()];
 			for (int i = 0; i < players.size(); i++) { // for each player
 				PokerSquaresPlayer player = players.get(i);
 				System.out.printf("Player: \"%s\"\n", player.getName());
-				int[] scores = new PokerSquares(player, system).playSequence(gamesPerSystem, startSeed, false);
+				PokerSquares game = new PokerSquares(player, system);
+				game.setResultSink(sink);
+				int[] scores = game.playSequence(gamesPerSystem, startSeed, false);
 				for (int score : scores)
 					totalScores[i] += score;
 				System.out.printf("Player \"%s\" total score: %d\n", player.getName(), totalScores[i]);
 			}
-			int maxTotal = Integer.MIN_VALUE;
-			int minTotal = Integer.MAX_VALUE;
-			for (int totalScore : totalScores) {
-				if (totalScore > maxTotal)
-					maxTotal = totalScore;
-				if (totalScore < minTotal)
-					minTotal = totalScore;				
-			}
-			for (int i = 0; i < players.size(); i++) { // for each player
-				double normalizedTotal = (double) (totalScores[i] - minTotal) / (maxTotal - minTotal);
-				System.out.println("Player \"" + players.get(i).getName() + "\" normalized score: " + normalizedTotal);
-				tournamentScores[i] += normalizedTotal;
+			addNormalizedScores(names, totalScores, tournamentScores);
+		}
+		printTournamentScores(names, tournamentScores);
+		return tournamentScores;
+	}
+
+	/**
+	 * Hold a Poker Squares tournament as in {@link #playTournament(ArrayList, ArrayList, int, long)}, but play the
+	 * independent (player, point system, seed) games concurrently on a fixed pool of the given number of threads
+	 * (at most Runtime.availableProcessors()).
+	 * Deals are the same as those of the serial tournament, and tournament scores are computed identically from the
+	 * game scores.  Each worker thread lazily creates its own player instance for each (player, point system) pair
+	 * from the given factories, so that no player object is shared between threads.
+	 * Since each game is charged wall-clock time, games only run while their players' threads (see
+	 * {@link PokerSquaresPlayer#getNumThreads()}) fit on the available processors alongside those of the other games
+	 * being played, so that multithreaded players do not slow each other down unfairly.
+	 * @param playerFactories factories creating new instances of the Poker Squares players taking part in the tournament
+	 * @param systems Poker Squares point systems used to evaluate players in the tournament
+	 * @param gamesPerSystem the number of games that will be played by each player with each point system
+	 * @param startSeed the start seed for the pseudorandom number generator that generates card deals
+	 * @param parallelism the maximum number of games played concurrently
+	 * @return the sum of the tournament scores for each of the given players
+	 */
+	public static double[] playTournament(
+			ArrayList<Supplier<PokerSquaresPlayer>> playerFactories,
+			ArrayList<PokerSquaresPointSystem> systems,
+			int gamesPerSystem, long startSeed, int parallelism) {
+		return playTournament(playerFactories, systems, gamesPerSystem, startSeed, parallelism, null);
+	}
+
+	/**
+	 * Hold a parallel Poker Squares tournament as in
+	 * {@link #playTournament(ArrayList, ArrayList, int, long, int)}, passing the record of every game to the given
+	 * result sink, which must accept records from several threads.
+	 * @param playerFactories factories creating new instances of the Poker Squares players taking part in the tournament
+	 * @param systems Poker Squares point systems used to evaluate players in the tournament
+	 * @param gamesPerSystem the number of games that will be played by each player with each point system
+	 * @param startSeed the start seed for the pseudorandom number generator that generates card deals
+	 * @param parallelism the maximum number of games played concurrently
+	 * @param sink destination of game records, or null if games are not recorded
+	 * @return the sum of the tournament scores for each of the given players
+	 */
+	public static double[] playTournament(
+			ArrayList<Supplier<PokerSquaresPlayer>> playerFactories,
+			ArrayList<PokerSquaresPointSystem> systems,
+			int gamesPerSystem, long startSeed, int parallelism, GameResultSink sink) {
+		parallelism = Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, RefereeExecutor.getShared().getThreadFactory());
+		try {
+			return playTournament(playerFactories, systems, gamesPerSystem, startSeed, executor, sink);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Hold a Poker Squares tournament as in {@link #playTournament(ArrayList, ArrayList, int, long, int, GameResultSink)},
+	 * playing games on the given executor.  The executor is not shut down.  However many threads it has, games only
+	 * run while their players' threads fit on the available processors.
+	 * @param playerFactories factories creating new instances of the Poker Squares players taking part in the tournament
+	 * @param systems Poker Squares point systems used to evaluate players in the tournament
+	 * @param gamesPerSystem the number of games that will be played by each player with each point system
+	 * @param startSeed the start seed for the pseudorandom number generator that generates card deals
+	 * @param executor executor on which games are played
+	 * @param sink destination of game records (accepting records from several threads), or null if games are not recorded
+	 * @return the sum of the tournament scores for each of the given players
+	 */
+	public static double[] playTournament(
+			final ArrayList<Supplier<PokerSquaresPlayer>> playerFactories,
+			final ArrayList<PokerSquaresPointSystem> systems,
+			int gamesPerSystem, long startSeed, ExecutorService executor, final GameResultSink sink) {
+		final int numPlayers = playerFactories.size();
+		final int numProcessors = Runtime.getRuntime().availableProcessors();
+		final Semaphore processors = new Semaphore(numProcessors, true); // processors free for the threads of games
+		final AtomicReferenceArray<String> names = new AtomicReferenceArray<String>(numPlayers); // set as players are created
+
+		// games of each worker thread, created on first use and indexed by system index * numPlayers + player index
+		// (held by this tournament only, so that its players are released when it ends)
+		final ConcurrentHashMap<Thread, PokerSquares[]> workerGames = new ConcurrentHashMap<Thread, PokerSquares[]>();
+		ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int s = 0; s < systems.size(); s++)
+			for (int i = 0; i < numPlayers; i++)
+				for (int g = 0; g < gamesPerSystem; g++) {
+					final int gameIndex = s * numPlayers + i;
+					final long seed = startSeed + g;
+					futures.add(executor.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() {
+							PokerSquares[] games = workerGames.get(Thread.currentThread());
+							if (games == null) {
+								games = new PokerSquares[systems.size() * numPlayers];
+								workerGames.put(Thread.currentThread(), games);
+							}
+							if (games[gameIndex] == null) {
+								PokerSquaresPlayer player = playerFactories.get(gameIndex % numPlayers).get();
+								names.set(gameIndex % numPlayers, player.getName());
+								games[gameIndex] = new PokerSquares(player, systems.get(gameIndex / numPlayers));
+								games[gameIndex].setResultSink(sink);
+							}
+							int threads = Math.max(1, Math.min(numProcessors, games[gameIndex].player.getNumThreads()));
+							processors.acquireUninterruptibly(threads);
+							try {
+								return games[gameIndex].playGame(seed);
+							}
+							finally {
+								processors.release(threads);
+							}
+						}
+					}));
+				}
+
+		try {
+			double[] tournamentScores = new double[numPlayers];
+			String[] playerNames = new String[numPlayers];
+			int f = 0;
+			for (PokerSquaresPointSystem system : systems) { // for each point system
+				System.out.println("Point System:\n" + system);
+				int[] totalScores = new int[numPlayers];
+				for (int i = 0; i < numPlayers; i++) { // for each player
+					for (int g = 0; g < gamesPerSystem; g++)
+						totalScores[i] += getGameScore(futures.get(f++));
+					playerNames[i] = names.get(i);
+					System.out.printf("Player \"%s\" total score: %d\n", playerNames[i], totalScores[i]);
+				}
+				addNormalizedScores(playerNames, totalScores, tournamentScores);
 			}
+			printTournamentScores(playerNames, tournamentScores);
+			return tournamentScores;
+		}
+		finally {
+			workerGames.clear();
+		}
+	}
+
+	/**
+	 * Wait for and return the score of a game played on an executor.
+	 * @param future pending game score
+	 * @return game score
+	 */
+	private static int getGameScore(Future<Integer> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tournament game failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Linearly scale the given total scores of one point system to tournament scores between 0.0 and 1.0, report them,
+	 * and add them to the given tournament scores.
+	 * @param names player names
+	 * @param totalScores total game scores of each player under one point system
+	 * @param tournamentScores sums of tournament scores of each player
+	 */
+	private static void addNormalizedScores(String[] names, int[] totalScores, double[] tournamentScores) {
+		int maxTotal = Integer.MIN_VALUE;
+		int minTotal = Integer.MAX_VALUE;
+		for (int totalScore : totalScores) {
+			if (totalScore > maxTotal)
+				maxTotal = totalScore;
+			if (totalScore < minTotal)
+				minTotal = totalScore;				
 		}
-		double max = Double.NEGATIVE_INFINITY;
-		for (double score : tournamentScores) {
-			if (score > max)
-				max = score;
+		for (int i = 0; i < names.length; i++) { // for each player
+			double normalizedTotal = (double) (totalScores[i] - minTotal) / (maxTotal - minTotal);
+			System.out.println("Player \"" + names[i] + "\" normalized score: " + normalizedTotal);
+			tournamentScores[i] += normalizedTotal;
 		}
+	}
+
+	/**
+	 * Print the final tournament scores.
+	 * @param names player names
+	 * @param tournamentScores sums of tournament scores of each player
+	 */
+	private static void printTournamentScores(String[] names, double[] tournamentScores) {
 		System.out.printf("%20s %s\n", "Player", "Tournament Score");
-		for (int i = 0; i < players.size(); i++) { // for each player
-			System.out.printf("%20s %f\n", players.get(i).getName(), tournamentScores[i]);
+		for (int i = 0; i < names.length; i++) { // for each player
+			System.out.printf("%20s %f\n", names[i], tournamentScores[i]);
 		}
+		System.out.print(RefereeExecutor.getShared().getReport());
+	}
 
-		return tournamentScores;
+	/**
+	 * Play a game of Poker Squares with the deal determined by the given seed and return the final game score.
+	 * @param seed pseudorandom number generator seed
+	 * @return final game score
+	 */
+	private int playGame(long seed) {
+		setSeed(seed);
+		return play();
 	}
 
 	/**
-	 * Set the seed of the game pseudorandom number generator.
+	 * Set the seed of the next game deal.
 	 * @param seed pseudorandom number generator seed
 	 */
 	private void setSeed(long seed) {
-		random.setSeed(seed);
+		this.seed = seed;
+	}
+
+	/**
+	 * Return the seed given to the player (see {@link PokerSquaresPlayer#setSeed(long)}) for the game with the given
+	 * deal seed.  It depends only on the deal seed, so a game is reproducible from its deal seed however many games
+	 * are played, in whatever order, on whatever thread.
+	 * @param dealSeed seed of the game deal
+	 * @return the player seed of the game
+	 */
+	public static long getPlayerSeed(long dealSeed) {
+		return new SplittableRandom(dealSeed).split().nextLong();
 	}
 
 
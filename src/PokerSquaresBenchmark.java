@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * PokerSquaresBenchmark - the benchmarked operations of the hot paths of the Poker Squares engines: hand
+ * classification, grid scoring, Monte Carlo rollouts, genetic algorithm generations and crossover.  Each factory
+ * method prepares seeded inputs and returns an operation that performs one benchmarked call per invocation and
+ * returns a value to be consumed, so that the call is not optimized away.
+ *
+ * The operations are measured by the JMH benchmarks of the bench directory (package pokersquares), which look these
+ * factories up by name, since JMH benchmarks cannot be in the default package and classes of other packages cannot
+ * refer to it.  (This class also has access to package-private methods such as RandomMCPlayer.simPlay.)
+ *
+ * Usage: mvn package, then java -jar target/benchmarks.jar [JMH options, e.g. -rf json -rff results.json]
+ */
+public class PokerSquaresBenchmark {
+
+	private static final int SIZE = PokerSquares.SIZE; // Poker Squares number of rows/columns
+	private static final int NUM_SAMPLES = 1024; // number of pregenerated hands/grids cycled through (power of 2)
+
+	/**
+	 * PokerSquaresBenchmark has only static members.
+	 */
+	private PokerSquaresBenchmark() {
+	}
+
+	/**
+	 * Return an operation classifying the next of NUM_SAMPLES pregenerated hands.
+	 * @param classifier "PokerHand" or "PokerHandClassifier"
+	 * @param hand "complete" for five-card hands, or "partial" for hands with up to four empty positions
+	 * @return the operation, returning the hand classification identification number
+	 */
+	public static LongSupplier classify(String classifier, String hand) {
+		Random random = new Random(0);
+		final Card[][] hands = new Card[NUM_SAMPLES][];
+		for (int i = 0; i < NUM_SAMPLES; i++) {
+			hands[i] = Arrays.copyOf(shuffledDeck(random), SIZE);
+			if (hand.equals("partial"))
+				for (int j = 0, empty = random.nextInt(SIZE); j < empty; j++)
+					hands[i][random.nextInt(SIZE)] = null;
+			else if (!hand.equals("complete"))
+				throw new IllegalArgumentException("Unknown hand kind " + hand);
+		}
+		if (classifier.equals("PokerHand"))
+			return new LongSupplier() {
+				int i;
+				@Override
+				public long getAsLong() {
+					return PokerHand.getPokerHand(hands[i++ & NUM_SAMPLES - 1]).id;
+				}
+			};
+		if (classifier.equals("PokerHandClassifier"))
+			return new LongSupplier() {
+				int i;
+				@Override
+				public long getAsLong() {
+					return PokerHandClassifier.getPokerHand(hands[i++ & NUM_SAMPLES - 1]).id;
+				}
+			};
+		throw new IllegalArgumentException("Unknown classifier " + classifier);
+	}
+
+	/**
+	 * Return an operation classifying the next of NUM_SAMPLES pregenerated complete hands with a hand table written
+	 * to a temporary file.
+	 * @return the operation, returning the hand classification identification number
+	 */
+	public static LongSupplier classifyWithHandTable() {
+		Random random = new Random(0);
+		final Card[][] hands = new Card[NUM_SAMPLES][];
+		for (int i = 0; i < NUM_SAMPLES; i++)
+			hands[i] = Arrays.copyOf(shuffledDeck(random), SIZE);
+		final HandTable handTable = createHandTable();
+		return new LongSupplier() {
+			int i;
+			@Override
+			public long getAsLong() {
+				Card[] hand = hands[i++ & NUM_SAMPLES - 1];
+				return handTable.getPokerHandId(hand[0], hand[1], hand[2], hand[3], hand[4]);
+			}
+		};
+	}
+
+	/**
+	 * Return an operation scoring the next of NUM_SAMPLES pregenerated full grids in the British point system.
+	 * @param grid "Card[][]", "HandTable" (Card[][] classified with a hand table) or "PackedGrid"
+	 * @return the operation, returning the grid score
+	 */
+	public static LongSupplier score(String grid) {
+		final PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+		final Card[][][] grids = createGrids(NUM_SAMPLES);
+		if (grid.equals("Card[][]"))
+			return new LongSupplier() {
+				int i;
+				@Override
+				public long getAsLong() {
+					return system.getScore(grids[i++ & NUM_SAMPLES - 1]);
+				}
+			};
+		if (grid.equals("HandTable")) {
+			final HandTable handTable = createHandTable();
+			return new LongSupplier() {
+				int i;
+				@Override
+				public long getAsLong() {
+					return system.getScore(grids[i++ & NUM_SAMPLES - 1], handTable);
+				}
+			};
+		}
+		if (grid.equals("PackedGrid")) {
+			final PackedGrid[] packedGrids = new PackedGrid[NUM_SAMPLES];
+			for (int i = 0; i < NUM_SAMPLES; i++)
+				packedGrids[i] = new PackedGrid(grids[i]);
+			return new LongSupplier() {
+				int i;
+				@Override
+				public long getAsLong() {
+					return system.getScore(packedGrids[i++ & NUM_SAMPLES - 1]);
+				}
+			};
+		}
+		throw new IllegalArgumentException("Unknown grid kind " + grid);
+	}
+
+	/**
+	 * Return an operation scoring a batch of pregenerated full grids in the British point system.
+	 * @param method "BatchScorer.score" (grids already set), "BatchScorer.setGrid+score" (grids set on each call) or
+	 * "getScore" (PokerSquaresPointSystem.getScore of each grid)
+	 * @param batchSize number of grids per call
+	 * @return the operation, returning the score of the last grid (or the total score for getScore)
+	 */
+	public static LongSupplier scoreBatch(String method, final int batchSize) {
+		final PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+		final Card[][][] grids = createGrids(batchSize);
+		final int[] totals = new int[batchSize];
+		final BatchScorer batchScorer = new BatchScorer(system, batchSize);
+		for (int i = 0; i < batchSize; i++)
+			batchScorer.setGrid(i, grids[i]);
+		if (method.equals("BatchScorer.score"))
+			return new LongSupplier() {
+				@Override
+				public long getAsLong() {
+					return batchScorer.score(batchSize, totals)[batchSize - 1];
+				}
+			};
+		if (method.equals("BatchScorer.setGrid+score"))
+			return new LongSupplier() {
+				@Override
+				public long getAsLong() {
+					for (int i = 0; i < batchSize; i++)
+						batchScorer.setGrid(i, grids[i]);
+					return batchScorer.score(batchSize, totals)[batchSize - 1];
+				}
+			};
+		if (method.equals("getScore"))
+			return new LongSupplier() {
+				@Override
+				public long getAsLong() {
+					long total = 0;
+					for (int i = 0; i < batchSize; i++)
+						total += system.getScore(grids[i]);
+					return total;
+				}
+			};
+		throw new IllegalArgumentException("Unknown batch scoring method " + method);
+	}
+
+	/**
+	 * Return an operation performing one RandomMCPlayer rollout from a grid with one card played, in the British
+	 * point system.
+	 * @param depthLimit depth limit of the rollout
+	 * @return the operation, returning the rollout score
+	 */
+	public static LongSupplier simPlay(final int depthLimit) {
+		final RandomMCPlayer player = new RandomMCPlayer(depthLimit);
+		player.setPointSystem(PokerSquaresPointSystem.getBritishPointSystem(), 0L);
+		player.setSeed(0L);
+		player.init();
+		player.makePlay(shuffledDeck(new Random(0))[0], 0, 0);
+		return new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return (long) player.simPlay(depthLimit);
+			}
+		};
+	}
+
+	/**
+	 * Return an operation scoring and generating one generation of a seeded Population in the British point system.
+	 * @param populationCount number of Dna in the population
+	 * @param crossoverOperator name of the Dna.CrossoverOperator
+	 * @param mutationOperator name of the Dna.MutationOperator
+	 * @return the operation, returning the number of generations
+	 */
+	public static LongSupplier generate(int populationCount, String crossoverOperator, String mutationOperator) {
+		final PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+		final Population population = new Population(populationCount, 0.15f, createGrids(1)[0], 0L);
+		population.setCrossoverOperator(Dna.CrossoverOperator.valueOf(crossoverOperator));
+		population.setMutationOperator(Dna.MutationOperator.valueOf(mutationOperator));
+		return new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				population.calculateFitness(system);
+				population.generate();
+				return population.getGenerations();
+			}
+		};
+	}
+
+	/**
+	 * Return an operation crossing over two fixed parents.
+	 * @param operator name of the Dna.CrossoverOperator
+	 * @return the operation, returning the card id of the child's first card
+	 */
+	public static LongSupplier crossOver(String operator) {
+		Card[][] cards = createGrids(1)[0];
+		final Dna parentA = new Dna(cards);
+		final Dna parentB = Dna.shuffle(cards, new SplittableRandom(0));
+		final SplittableRandom random = new SplittableRandom(0);
+		final Dna.CrossoverOperator crossoverOperator = Dna.CrossoverOperator.valueOf(operator);
+		return new LongSupplier() {
+			@Override
+			public long getAsLong() {
+				return parentA.crossOver(parentB, random, crossoverOperator).getGrid().get(0);
+			}
+		};
+	}
+
+	/**
+	 * Write a hand table to a temporary file (deleted on exit) and memory-map it.
+	 */
+	private static HandTable createHandTable() {
+		try {
+			Path path = Files.createTempFile("handtable", ".bin");
+			path.toFile().deleteOnExit();
+			HandTable.write(path);
+			return HandTable.load(path);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Return the given number of seeded full grids.
+	 */
+	private static Card[][][] createGrids(int numGrids) {
+		Random random = new Random(0);
+		Card[][][] grids = new Card[numGrids][][];
+		for (int g = 0; g < numGrids; g++) {
+			Card[] deck = shuffledDeck(random);
+			grids[g] = new Card[SIZE][SIZE];
+			for (int i = 0; i < SIZE * SIZE; i++)
+				grids[g][i / SIZE][i % SIZE] = deck[i];
+		}
+		return grids;
+	}
+
+	/**
+	 * Return a newly shuffled deck.
+	 */
+	private static Card[] shuffledDeck(Random random) {
+		Card[] deck = Card.getAllCards();
+		Collections.shuffle(Arrays.asList(deck), random);
+		return deck;
+	}
+}
@@ -2,7 +2,10 @@
 /**
  * PokerSquaresPlayer - a simple player interface for PokerSquares.
  * For each score system, there will be a call to setPointSystem followed by the calls of one or more games.
- * For each game, there will be a call to init() followed by 25 calls to getPlay(Card, long).
+ * For each game, there will be a call to setSeed(long), then a call to init(), followed by a call to
+ * setDeckView(DeckView) and 25 calls to getPlay(Card, long).
+ * setPointSystem and getPlay are called on referee threads (not necessarily the same thread each time), which are
+ * interrupted when their time runs out; a player should then return promptly.
  * Author: Todd W. Neller
  */
 public interface PokerSquaresPlayer {
@@ -21,6 +24,15 @@ public interface PokerSquaresPlayer {
 	 */
 	void setPointSystem(PokerSquaresPointSystem system, long millis); 
 	
+	/**
+	 * setSeed - provides the player, before each init(), with a seed for the game derived from the seed of the
+	 * game's deal.  Players making random choices should draw them from generators seeded by it, so that a game
+	 * can be reproduced from its deal seed.  The default implementation ignores it.
+	 * @param seed - player seed for the coming game
+	 */
+	default void setSeed(long seed) {
+	}
+
 	/**
 	 * init - initializes the player before each game
 	 */
@@ -37,6 +49,25 @@ public interface PokerSquaresPlayer {
 	 * @return a 2D int array with the chosen (row, col) position for play of the given card.
 	 */
 	int[] getPlay(Card card, long millisRemaining);
+
+	/**
+	 * setDeckView - provides the player, after each init(), with a read-only view of the undealt game deck in
+	 * dealing order, which reflects each deal until the end of the game.  Deck knowledge is not part of the standard
+	 * game; the default implementation ignores it, so players that do not use it need not implement this method.
+	 * @param deck - read-only view of the undealt deck
+	 */
+	default void setDeckView(DeckView deck) {
+	}
+
+	/**
+	 * getNumThreads - gets the number of threads on which the player computes its plays, so that a referee playing
+	 * games concurrently can keep their threads within the available processors.  The default implementation
+	 * returns 1.
+	 * @return number of threads used by the player
+	 */
+	default int getNumThreads() {
+		return 1;
+	}
 	
 	
 	/**
@@ -1,4 +1,4 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 
 
 /**
@@ -6,10 +6,11 @@ import java.util.Random;
  *
  */
 public class PokerSquaresPointSystem {
-	private static final Random random = new Random(); // pseudorandom number generator
+	private static SplittableRandom random = new SplittableRandom(); // default pseudorandom number generator (guarded by the class lock)
 	private static final int MAX_HAND_SCORE = 127; // maximum permissible hand score
 	private static final int MIN_HAND_SCORE = -128; // maximum permissible hand score
 	private static final int SIZE = PokerSquares.SIZE; // Poker Squares number of rows/columns
+	private static volatile HandTable handTable; // optional table classifying complete lines, or null
 	private final int[] scores; // scores for each corresponding hand classification id number
 	
 	/**
@@ -30,7 +31,7 @@ public class PokerSquaresPointSystem {
 	 * @return score of given Card hand.
 	 */
 	public int getHandScore(Card[] hand) {
-		return scores[PokerHand.getPokerHandId(hand)];
+		return scores[PokerHandClassifier.getPokerHandId(hand)];
 	}
 	
 	/**
@@ -65,10 +66,26 @@ public class PokerSquaresPointSystem {
 	 * @return score of given Card grid
 	 */
 	public int getScore(Card[][] grid) {
-		int[] handScores = getHandScores(grid);
+		HandTable table = handTable;
+		if (table != null)
+			return getScore(grid, table);
 		int totalScore = 0;
-		for (int handScore : handScores)
-			totalScore += handScore;
+		for (int i = 0; i < SIZE; i++)
+			totalScore += scores[PokerHandClassifier.getRowHandId(grid, i)] + scores[PokerHandClassifier.getColumnHandId(grid, i)];
+		return totalScore;
+	}
+	
+	/**
+	 * Get the score of the given Card grid, classifying complete lines with the given hand table.
+	 * @param grid Card grid
+	 * @param table hand table
+	 * @return score of given Card grid
+	 */
+	public int getScore(Card[][] grid, HandTable table) {
+		int totalScore = 0;
+		for (int i = 0; i < SIZE; i++)
+			totalScore += scores[getPokerHandId(grid[i][0], grid[i][1], grid[i][2], grid[i][3], grid[i][4], table)]
+					+ scores[getPokerHandId(grid[0][i], grid[1][i], grid[2][i], grid[3][i], grid[4][i], table)];
 		return totalScore;
 	}
 	
@@ -78,46 +95,112 @@ public class PokerSquaresPointSystem {
 	 * @return an int array with the individual hand scores of rows 0 through 4 followed by columns 0 through 4. 
 	 */
 	public int[] getHandScores(Card[][] grid) {
+		HandTable table = handTable;
 		int[] handScores = new int[2 * SIZE];
-		for (int row = 0; row < SIZE; row++) {
-			Card[] hand = new Card[SIZE];
-			for (int col = 0; col < SIZE; col++)
-				hand[col] = grid[row][col];
-			handScores[row] = getHandScore(hand);
-		}
-		for (int col = 0; col < SIZE; col++) {
-			Card[] hand = new Card[SIZE];
-			for (int row = 0; row < SIZE; row++)
-				hand[row] = grid[row][col];
-			handScores[SIZE + col] = getHandScore(hand);
+		for (int i = 0; i < SIZE; i++) {
+			handScores[i] = scores[getPokerHandId(grid[i][0], grid[i][1], grid[i][2], grid[i][3], grid[i][4], table)];
+			handScores[SIZE + i] = scores[getPokerHandId(grid[0][i], grid[1][i], grid[2][i], grid[3][i], grid[4][i], table)];
 		}
 		return handScores;
 	}
 	
 	/**
-	 * Set the seed of the game pseudorandom number generator.
+	 * Classify the given line (possibly with null values), by the given hand table if the line is complete and the
+	 * table is not null.
+	 */
+	private static int getPokerHandId(Card c0, Card c1, Card c2, Card c3, Card c4, HandTable table) {
+		if (table == null || c0 == null || c1 == null || c2 == null || c3 == null || c4 == null)
+			return PokerHandClassifier.getPokerHandId(c0, c1, c2, c3, c4);
+		return table.getPokerHandId(c0, c1, c2, c3, c4);
+	}
+	
+	/**
+	 * Get the score of the given packed grid.
+	 * @param grid packed play grid
+	 * @return score of given packed grid
+	 */
+	public int getScore(PackedGrid grid) {
+		int totalScore = 0;
+		for (int i = 0; i < SIZE; i++)
+			totalScore += scores[PokerHandClassifier.getRowHandId(grid, i)] + scores[PokerHandClassifier.getColumnHandId(grid, i)];
+		return totalScore;
+	}
+
+	/**
+	 * Get an int array with the individual hand scores of rows 0 through 4 followed by columns 0 through 4. 
+	 * @param grid packed play grid
+	 * @return an int array with the individual hand scores of rows 0 through 4 followed by columns 0 through 4. 
+	 */
+	public int[] getHandScores(PackedGrid grid) {
+		int[] handScores = new int[2 * SIZE];
+		for (int row = 0; row < SIZE; row++)
+			handScores[row] = scores[PokerHandClassifier.getRowHandId(grid, row)];
+		for (int col = 0; col < SIZE; col++)
+			handScores[SIZE + col] = scores[PokerHandClassifier.getColumnHandId(grid, col)];
+		return handScores;
+	}
+	
+	/**
+	 * Install a hand table for classifying complete lines of Card grids (see {@link HandTable}), or remove it with
+	 * null.  Classification results are the same either way.
+	 * @param table hand table, or null
+	 */
+	public static void setHandTable(HandTable table) {
+		handTable = table;
+	}
+	
+	/**
+	 * Get the installed hand table.
+	 * @return the installed hand table, or null if none
+	 */
+	public static HandTable getHandTable() {
+		return handTable;
+	}
+	
+	/**
+	 * Set the seed of the default pseudorandom number generator for random point systems.
 	 * @param seed pseudorandom number generator seed
 	 */
-	public static void setSeed(long seed) {
-		random.setSeed(seed);
+	public static synchronized void setSeed(long seed) {
+		random = new SplittableRandom(seed);
+	}
+	
+	/**
+	 * Return a random point system with scores uniformly distributed across the range of all allowable values,
+	 * using the default pseudorandom number generator.
+	 * @return a random point system with scores uniformly distributed across the range of all allowable values
+	 */
+	public static synchronized PokerSquaresPointSystem getRandomPointSystem() {
+		return getRandomPointSystem(random);
 	}
 	
 	/**
 	 * Return a random point system with scores uniformly distributed across the range of all allowable values.
+	 * @param random pseudorandom number generator
 	 * @return a random point system with scores uniformly distributed across the range of all allowable values
 	 */
-	public static PokerSquaresPointSystem getRandomPointSystem() {
+	public static PokerSquaresPointSystem getRandomPointSystem(SplittableRandom random) {
 		int[] scores = new int[PokerHand.NUM_HANDS];
 		for (int i = 0; i < PokerHand.NUM_HANDS; i++)
 			scores[i] = random.nextInt(MAX_HAND_SCORE - MIN_HAND_SCORE + 1) + MIN_HAND_SCORE;
 		return new PokerSquaresPointSystem(scores);
 	}
 	
+	/**
+	 * Return a random hypercorner point system where hand scores are either -1 or 1 with equal probability, using
+	 * the default pseudorandom number generator.
+	 * @return a random hypercorner point system where hand scores are either -1 or 1 with equal probability
+	 */
+	public static synchronized PokerSquaresPointSystem getHypercornerPointSystem() {
+		return getHypercornerPointSystem(random);
+	}
+	
 	/**
 	 * Return a random hypercorner point system where hand scores are either -1 or 1 with equal probability.
+	 * @param random pseudorandom number generator
 	 * @return a random hypercorner point system where hand scores are either -1 or 1 with equal probability
 	 */
-	public static PokerSquaresPointSystem getHypercornerPointSystem() {
+	public static PokerSquaresPointSystem getHypercornerPointSystem(SplittableRandom random) {
 		int[] scores = new int[PokerHand.NUM_HANDS];
 		for (int i = 0; i < PokerHand.NUM_HANDS; i++)
 			scores[i] = random.nextBoolean() ? 1 : -1;
@@ -142,7 +225,7 @@ public class PokerSquaresPointSystem {
 	 * All other hands score nothing. 
 	 * @return a point system where only one randomly selected Poker hand scores 1 point
 	 */
-	public static PokerSquaresPointSystem getSingleHandPointSystem() {
+	public static synchronized PokerSquaresPointSystem getSingleHandPointSystem() {
 		return getSingleHandPointSystem(random.nextInt(PokerHand.NUM_HANDS));
 	}
 	
@@ -162,11 +245,21 @@ public class PokerSquaresPointSystem {
 		return new PokerSquaresPointSystem(new int[] {0, 1, 3, 6, 12, 5, 10, 16, 30, 30});
 	}
 	
+	/**
+	 * Return an "Ameritish" point system randomly generated between the normalized point ranges established by the American and British systems,
+	 * using the default pseudorandom number generator.
+	 * @return an "Ameritish" point system randomly generated between the normalized point ranges established by the American and British systems
+	 */
+	public static synchronized PokerSquaresPointSystem getAmeritishPointSystem() {
+		return getAmeritishPointSystem(random);
+	}
+	
 	/**
 	 * Return an "Ameritish" point system randomly generated between the normalized point ranges established by the American and British systems.
+	 * @param random pseudorandom number generator
 	 * @return an "Ameritish" point system randomly generated between the normalized point ranges established by the American and British systems
 	 */
-	public static PokerSquaresPointSystem getAmeritishPointSystem() {
+	public static PokerSquaresPointSystem getAmeritishPointSystem(SplittableRandom random) {
 		int[] american = {0, 2, 5, 10, 15, 20, 25, 50, 75, 100};
 		int[] british = {0, 1, 3, 6, 12, 5, 10, 16, 30, 30};
 		int[] ameritish = new int[10];
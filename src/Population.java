@@ -1,8 +1,18 @@
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
 
 public class Population {
 
+    private static final Metrics.Counter GENERATIONS = Metrics.counter("Population.generations");
+    private static final Metrics.Counter FITNESS_EVALUATIONS = Metrics.counter("Population.fitnessEvaluations");
+    private static final Metrics.Counter FITNESS_LOOKUPS = Metrics.counter("Population.fitnessLookups");
+    private static final Metrics.Counter FITNESS_CACHE_HITS = Metrics.counter("Population.fitnessCacheHits");
+    private static final int CACHE_SIZE = 1 << 14;
+
     private Dna[] population;
+    // children of the next generation are written over these, which then become the population
+    private Dna[] spare;
     private int populationCount;
 
     public void setMutationRate(float mutationRate) {
@@ -15,8 +25,41 @@ public class Population {
 
     private float mutationRate;
 
+    private final SplittableRandom random;
+
+    private Dna.CrossoverOperator crossoverOperator = Dna.CrossoverOperator.UNIFORM;
+
+    private Dna.MutationOperator mutationOperator = Dna.MutationOperator.SHUFFLE;
+
+    public Dna.CrossoverOperator getCrossoverOperator() {
+        return crossoverOperator;
+    }
+
+    public void setCrossoverOperator(Dna.CrossoverOperator crossoverOperator) {
+        this.crossoverOperator = crossoverOperator;
+    }
+
+    public Dna.MutationOperator getMutationOperator() {
+        return mutationOperator;
+    }
+
+    public void setMutationOperator(Dna.MutationOperator mutationOperator) {
+        this.mutationOperator = mutationOperator;
+    }
+
     private Dna bestDna;
 
+    private final ScoreCache cache = new ScoreCache(CACHE_SIZE);
+    private PokerSquaresPointSystem cacheSystem;
+    private long fitnessLookups;
+    private long fitnessEvaluations;
+    private long cacheHits;
+
+    // best index of the last fitness pass, valid while population and system are unchanged
+    private int bestFitIndex;
+    private Dna[] bestFitPopulation;
+    private PokerSquaresPointSystem bestFitSystem;
+
     private int generations = 0;
 
     private double maxFitness;
@@ -35,21 +78,69 @@ public class Population {
     }
 
     public Population(int populationCount, float mutationRate, Card[][] cards) {
+        this(populationCount, mutationRate, cards, new SplittableRandom());
+    }
+
+    public Population(int populationCount, float mutationRate, Card[][] cards, long seed) {
+        this(populationCount, mutationRate, cards, new SplittableRandom(seed));
+    }
+
+    private Population(int populationCount, float mutationRate, Card[][] cards, SplittableRandom random) {
+        this.random = random;
         Dna[] dnas = new Dna[populationCount];
         dnas[0] = new Dna(cards);
         bestDna = dnas[0];
         for(int i = 1; i<dnas.length; i++) {
-            dnas[i] = Dna.shuffle(cards);
+            dnas[i] = Dna.shuffle(cards, random);
         }
         this.population = dnas;
+        this.spare = new Dna[populationCount];
+        for(int i = 0; i<spare.length; i++) {
+            spare[i] = new Dna(new PackedGrid());
+        }
         this.populationCount = populationCount;
         this.mutationRate = mutationRate;
     }
 
+    // Scores each Dna not yet scored under the system (looking its arrangement up in the cache first) and finds the
+    // best index in the same pass.
     public void calculateFitness(PokerSquaresPointSystem system) {
-        for(Dna dna : population) {
-            dna.calculateFitness(system);
+        if(cacheSystem != system) {
+            cache.clear();
+            cacheSystem = system;
+        }
+        long evaluations = 0;
+        long hits = 0;
+        int index = 0;
+        int maxScore = 0;
+        for(int i = 0; i<population.length; i++) {
+            Dna dna = population[i];
+            if(!dna.isScored(system)) {
+                long hash = dna.longHashCode();
+                int score = cache.get(hash);
+                if(score == ScoreCache.MISSING) {
+                    score = system.getScore(dna.getGrid());
+                    cache.put(hash, score);
+                    evaluations++;
+                } else {
+                    hits++;
+                }
+                dna.setScore(system, score);
+            }
+            if(maxScore < dna.getScore()) {
+                maxScore = dna.getScore();
+                index = i;
+            }
         }
+        bestFitIndex = index;
+        bestFitPopulation = population;
+        bestFitSystem = system;
+        fitnessLookups += population.length;
+        fitnessEvaluations += evaluations;
+        cacheHits += hits;
+        FITNESS_LOOKUPS.add(population.length);
+        FITNESS_EVALUATIONS.add(evaluations);
+        FITNESS_CACHE_HITS.add(hits);
     }
 
     public void generate() {
@@ -61,21 +152,23 @@ public class Population {
             }
         }
 
-        Dna[] newPopulation = new Dna[population.length];
+        Dna[] newPopulation = spare;
 
         for(int i = 0; i<this.population.length; i++) {
             Dna partnerA = acceptReject(maxFitness);
             Dna partnerB = acceptReject(maxFitness);
-            Dna child = partnerA.crossOver(partnerB);
-            child = child.mutate(mutationRate);
-            newPopulation[i] = child;
+            partnerA.crossOver(partnerB, newPopulation[i], random, crossoverOperator);
+            newPopulation[i].mutateInPlace(mutationRate, random, mutationOperator);
         }
+        spare = population;
         this.population = newPopulation;
+        // (the arrays alternate, so the last fitness pass no longer describes this one)
+        bestFitPopulation = null;
         generations++;
+        GENERATIONS.increment();
     }
 
     public Dna acceptReject(double maxFitness) {
-        Random random = new Random();
         while (true) {
             int randomIndex = random.nextInt(this.population.length);
             Dna partnerDna = this.population[randomIndex];
@@ -87,20 +180,162 @@ public class Population {
     }
 
     public int getBestFit(PokerSquaresPointSystem system) {
-        int index = 0;
-        int maxScore = 0;
-        for(int i = 0; i<population.length; i++) {
-            int score = system.getScore(population[i].getCards());
-            if(maxScore < score) {
-                maxScore = score;
-                index = i;
+        if(bestFitPopulation != population || bestFitSystem != system) {
+            calculateFitness(system);
+        }
+        return bestFitIndex;
+    }
+
+    // Dna fitness lookups, of which some were scored, some found in the cache and the rest already scored
+    public long getFitnessLookups() {
+        return fitnessLookups;
+    }
+
+    public long getFitnessEvaluations() {
+        return fitnessEvaluations;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public double getCacheHitRate() {
+        long misses = fitnessEvaluations;
+        return cacheHits + misses == 0 ? 0 : (double) cacheHits / (cacheHits + misses);
+    }
+
+    public double getSavedEvaluationsPerGeneration() {
+        return generations == 0 ? 0 : (double) (fitnessLookups - fitnessEvaluations) / generations;
+    }
+
+    public Dna[] getFittest(PokerSquaresPointSystem system, int count) {
+        calculateFitness(system);
+        Dna[] sorted = population.clone();
+        Arrays.sort(sorted, new Comparator<Dna>() {
+            @Override
+            public int compare(Dna a, Dna b) {
+                return Double.compare(b.getFitness(), a.getFitness());
+            }
+        });
+        // copies, since the population's Dna are overwritten by later generations
+        Dna[] fittest = new Dna[Math.min(count, sorted.length)];
+        for(int i = 0; i<fittest.length; i++) {
+            fittest[i] = new Dna(new PackedGrid());
+            fittest[i].copyFrom(sorted[i]);
+        }
+        return fittest;
+    }
+
+    public void replaceWeakest(PokerSquaresPointSystem system, Dna[] migrants) {
+        calculateFitness(system);
+        Integer[] order = new Integer[population.length];
+        for(int i = 0; i<order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(population[a].getFitness(), population[b].getFitness());
             }
+        });
+        for(int i = 0; i<migrants.length && i<order.length; i++) {
+            population[order[i]].copyFrom(migrants[i]);
         }
-        return index;
+        bestFitPopulation = null;
     }
 
-    public Card[][] getChild(int index) {
-        return population[index].getCards();
+    public PackedGrid getChild(int index) {
+        return population[index].getGrid();
     }
 
+    /**
+     * Benchmark generations per second of each crossover and mutation operator combination on a seeded deal, and of
+     * the legacy operators together for comparison.
+     * @param args (not used)
+     */
+    public static void main(String[] args) {
+        PokerSquaresPointSystem system = PokerSquaresPointSystem.getBritishPointSystem();
+        Card[] deck = Card.getAllCards();
+        java.util.Collections.shuffle(java.util.Arrays.asList(deck), new java.util.Random(0));
+        Card[][] cards = new Card[PokerSquares.SIZE][PokerSquares.SIZE];
+        for(int i = 0; i < PokerSquares.SIZE * PokerSquares.SIZE; i++) {
+            cards[i / PokerSquares.SIZE][i % PokerSquares.SIZE] = deck[i];
+        }
+        for(Dna.CrossoverOperator crossoverOperator : Dna.CrossoverOperator.values()) {
+            for(Dna.MutationOperator mutationOperator : Dna.MutationOperator.values()) {
+                if((crossoverOperator == Dna.CrossoverOperator.LEGACY_UNIFORM) != (mutationOperator == Dna.MutationOperator.LEGACY_SHUFFLE)) {
+                    continue;
+                }
+                Population population = new Population(500, 0.15f, cards, 0L);
+                population.setCrossoverOperator(crossoverOperator);
+                population.setMutationOperator(mutationOperator);
+                long start = System.nanoTime();
+                int best = 0;
+                while(System.nanoTime() - start < 3000000000L) {
+                    population.calculateFitness(system);
+                    population.generate();
+                    best = Math.max(best, system.getScore(population.getChild(population.getBestFit(system))));
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-14s %-14s %8.1f generations/s, best score %d, cache hit rate %.3f, %.1f evaluations saved per generation%n",
+                        crossoverOperator, mutationOperator, population.getGenerations() / seconds, best,
+                        population.getCacheHitRate(), population.getSavedEvaluationsPerGeneration());
+            }
+        }
+    }
+
+    // Bounded cache of arrangement scores by 64-bit arrangement hash: 4-way sets with CLOCK replacement in each set
+    private static final class ScoreCache {
+        static final int MISSING = Integer.MIN_VALUE;
+        private static final int WAYS = 4;
+
+        private final long[] keys;
+        private final int[] scores;
+        private final boolean[] used;
+        private final boolean[] referenced;
+        private final byte[] hands;
+        private final int setMask;
+
+        ScoreCache(int size) {
+            keys = new long[size];
+            scores = new int[size];
+            used = new boolean[size];
+            referenced = new boolean[size];
+            hands = new byte[size / WAYS];
+            setMask = size / WAYS - 1;
+        }
+
+        int get(long key) {
+            int base = ((int) (key >>> 40) & setMask) * WAYS;
+            for(int slot = base; slot < base + WAYS; slot++) {
+                if(used[slot] && keys[slot] == key) {
+                    referenced[slot] = true;
+                    return scores[slot];
+                }
+            }
+            return MISSING;
+        }
+
+        void put(long key, int score) {
+            int set = (int) (key >>> 40) & setMask;
+            int hand = hands[set];
+            while(true) {
+                int slot = set * WAYS + hand;
+                hand = (hand + 1) % WAYS;
+                if(!used[slot] || !referenced[slot]) {
+                    keys[slot] = key;
+                    scores[slot] = score;
+                    used[slot] = true;
+                    referenced[slot] = false;
+                    hands[set] = (byte) hand;
+                    return;
+                }
+                referenced[slot] = false;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(used, false);
+        }
+    }
 }
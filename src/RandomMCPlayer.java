@@ -1,5 +1,7 @@
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * RandomMCPlayer - a simple Monte Carlo implementation of the player interface for PokerSquares.
@@ -16,15 +18,25 @@ import java.util.Random;
  */
 public class RandomMCPlayer implements PokerSquaresPlayer {
 
+	private static final Metrics.Counter SIMULATIONS = Metrics.counter("RandomMCPlayer.simulations"); // MC simulations of all decisions
+	private static final Metrics.Histogram SIMS_PER_CANDIDATE = Metrics.histogram("RandomMCPlayer.simsPerCandidate"); // MC simulations of each legal play of a decision
+	private static final Metrics.Histogram SIMS_PER_SECOND = Metrics.histogram("RandomMCPlayer.simsPerSecond"); // MC simulation rate of each decision
+
 	private final int SIZE = 5; // number of rows/columns in square grid
 	private final int NUM_POS = SIZE * SIZE; // number of positions in square grid
 	private final int NUM_CARDS = Card.NUM_CARDS; // number of cards in deck
-	private Random random = new Random(); // pseudorandom number generator for Monte Carlo simulation
+	private final int SIM_BATCH = 8; // simulations between clock reads
+	private final long SEPARATION_SLICE_NANOS = 2000000L; // root-parallel simulation time between separation checks
+	private SplittableRandom random = new SplittableRandom(); // pseudorandom number generator for Monte Carlo simulation
 	private int[] plays = new int[NUM_POS]; // positions of plays so far (index 0 through numPlays - 1) recorded as integers using row-major indices.
 	// row-major indices: play (r, c) is recorded as a single integer r * SIZE + c (See http://en.wikipedia.org/wiki/Row-major_order)
 	// From plays index [numPlays] onward, we maintain a list of yet unplayed positions.
 	private int numPlays = 0; // number of Cards played into the grid so far
 	private PokerSquaresPointSystem system; // point system
+	private IncrementalScorer scorer; // running score of grid, updated with each play and undo
+	private PointSystemTables tables; // point-system-specific tables precomputed in setPointSystem
+	private boolean potentialEvaluation; // whether depth-limited rollouts end with an expected final score estimate
+	private LinePotentialEvaluator evaluator; // partial grid evaluator (null unless potentialEvaluation)
 	private int depthLimit = 2; // default depth limit for Random Monte Carlo (MC) play
 	private Card[][] grid = new Card[SIZE][SIZE]; // grid with Card objects or null (for empty positions)
 	private Card[] simDeck = Card.getAllCards(); // a list of all Cards. As we learn the index of cards in the play deck,
@@ -32,6 +44,13 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 	// onward, we maintain a list of undealt cards for MC simulation.
 	private int[][] legalPlayLists = new int[NUM_POS][NUM_POS]; // stores legal play lists indexed by numPlays (depth)
 	// (This avoids constant allocation/deallocation of such lists during the selections of MC simulations.)
+	private int numThreads = 1; // number of simulation threads (including the calling thread)
+	private RandomMCPlayer[] workers = new RandomMCPlayer[0]; // simulation workers for the additional threads
+	private TimeBudget budget = new TimeBudget(); // per-move time allocation
+	private boolean successiveHalving = false; // whether to drop the lower half of plays in each of several rounds
+	private long lastSimCount; // number of MC simulations for the most recent play decision
+	private long lastTopSimCount; // number of MC simulations of the top 3 plays for the most recent play decision
+	private double lastSimsPerSecond; // MC simulations per second for the most recent play decision
 
 	/**
 	 * Create a Random Monte Carlo player that simulates random play to depth 2.
@@ -47,6 +66,22 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		this.depthLimit = depthLimit;
 	}
 
+	/**
+	 * Create a root-parallel Random Monte Carlo player that simulates random play to a given depth limit on the
+	 * given number of threads.  Each thread evaluates all legal plays with its own copy of the game state and its
+	 * own pseudorandom number generator, and the simulation results of all threads are merged before choosing a play.
+	 * Workers run on the shared {@link PlayerExecutor}, so the player holds no threads between plays.
+	 * @param depthLimit depth limit for random simulated play
+	 * @param numThreads number of simulation threads (including the calling thread)
+	 */
+	public RandomMCPlayer(int depthLimit, int numThreads) {
+		this(depthLimit);
+		this.numThreads = numThreads;
+		workers = new RandomMCPlayer[numThreads - 1];
+		for (int w = 0; w < workers.length; w++)
+			workers[w] = new RandomMCPlayer(depthLimit);
+	}
+
 	/* (non-Javadoc)
 	 * @see PokerSquaresPlayer#init()
 	 */
@@ -56,6 +91,7 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		for (int row = 0; row < SIZE; row++)
 			for (int col = 0; col < SIZE; col++)
 				grid[row][col] = null;
+		scorer.clear();
 		// reset numPlays
 		numPlays = 0;
 		// (re)initialize list of play positions (row-major ordering)
@@ -77,6 +113,8 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		 *     picks a play position randomly.
 		 *   After many such plays, the average score per simulated play is computed.  The play with the highest
 		 *     average score is chosen (breaking ties randomly).
+		 * With successive halving, the time is divided into rounds, after each of which the plays with the lower half
+		 * of average scores are dropped, and the play is chosen among the final survivors.
 		 */
 
 		// match simDeck to actual play event; in this way, all indices forward from the card contain a list of 
@@ -86,31 +124,59 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 			cardIndex++;
 		simDeck[cardIndex] = simDeck[numPlays];
 		simDeck[numPlays] = card;
+		setEvaluatorDeck();
 
 		if (numPlays < 24) { // not the forced last play
-			// compute average time per move evaluation
-			int remainingPlays = NUM_POS - numPlays; // ignores triviality of last play to keep a conservative margin for game completion
-			long millisPerPlay = millisRemaining / remainingPlays; // dividing time evenly with future getPlay() calls
-			long millisPerMoveEval = millisPerPlay / remainingPlays; // dividing time evenly across moves now considered
+			// allocate this move's share of the remaining time, weighted by game phase, with an extension while the best
+			// plays are too close to separate (see TimeBudget)
+			int remainingPlays = NUM_POS - numPlays;
+			budget.startMove(millisRemaining, numPlays);
 			// copy the play positions (row-major indices) that are empty
 			System.arraycopy(plays, numPlays, legalPlayLists[numPlays], 0, remainingPlays);
+			double[] scoreTotals = new double[remainingPlays]; // MC simulation score totals for each legal play
+			double[] scoreSquares = new double[remainingPlays]; // MC simulation squared score totals for each legal play
+			long[] simCounts = new long[remainingPlays]; // MC simulation counts for each legal play
+			int[] candidates = new int[remainingPlays]; // legal play list indices of candidate plays, best first after each round
+			for (int i = 0; i < remainingPlays; i++)
+				candidates[i] = i;
+			int numCandidates = remainingPlays;
+			long startTime = System.nanoTime();
+			int numRounds = 1;
+			if (successiveHalving) // halve the candidates until at most 2 remain
+				for (int n = remainingPlays; n > 2; n = (n + 1) / 2)
+					numRounds++;
+			for (int round = 1; round <= numRounds; round++) {
+				long roundDeadline = startTime + (budget.getSoftDeadline() - startTime) * round / numRounds;
+				if (numThreads == 1)
+					evaluatePlays(card, candidates, numCandidates, roundDeadline, scoreTotals, scoreSquares, simCounts);
+				else
+					evaluatePlaysInParallel(card, candidates, numCandidates, roundDeadline, scoreTotals, scoreSquares, simCounts);
+				sortByAverage(candidates, numCandidates, scoreTotals, simCounts);
+				if (round < numRounds)
+					numCandidates = (numCandidates + 1) / 2;
+			}
+			separateBestPlays(card, candidates, numCandidates, scoreTotals, scoreSquares, simCounts);
+			sortByAverage(candidates, numCandidates, scoreTotals, simCounts);
+			lastSimCount = 0;
+			for (long simCount : simCounts)
+				lastSimCount += simCount;
+			lastTopSimCount = 0; // candidates are ordered by round survived, then by average score
+			for (int k = 0; k < Math.min(3, remainingPlays); k++)
+				lastTopSimCount += simCounts[candidates[k]];
+			lastSimsPerSecond = lastSimCount * 1e9 / Math.max(1, System.nanoTime() - startTime);
+			if (Metrics.isEnabled()) {
+				SIMULATIONS.add(lastSimCount);
+				for (long simCount : simCounts)
+					SIMS_PER_CANDIDATE.record(simCount);
+				SIMS_PER_SECOND.record((long) lastSimsPerSecond);
+			}
 			double maxAverageScore = Double.NEGATIVE_INFINITY; // maximum average score found for moves so far
 			ArrayList<Integer> bestPlays = new ArrayList<Integer>(); // all plays yielding the maximum average score 
-			for (int i = 0; i < remainingPlays; i++) { // for each legal play position
+			for (int k = 0; k < numCandidates; k++) { // for each surviving legal play position
+				int i = candidates[k];
 				int play = legalPlayLists[numPlays][i];
-				long startTime = System.currentTimeMillis();
-				long endTime = startTime + millisPerMoveEval; // compute when MC simulations should end
-				makePlay(card, play / SIZE, play % SIZE);  // play the card at the empty position
-				int simCount = 0;
-				int scoreTotal = 0;
-				while (System.currentTimeMillis() < endTime) { // perform as many MC simulations as possible through the allotted time
-					// Perform a Monte Carlo simulation of random play to the depth limit or game end, whichever comes first.
-					scoreTotal += simPlay(depthLimit);  // accumulate MC simulation scores
-					simCount++; // increment count of MC simulations
-				}
-				undoPlay(); // undo the play under evaluation
 				// update (if necessary) the maximum average score and the list of best plays
-				double averageScore = (double) scoreTotal / simCount;
+				double averageScore = scoreTotals[i] / simCounts[i];
 				if (averageScore >= maxAverageScore) {
 					if (averageScore > maxAverageScore)
 						bestPlays.clear();
@@ -132,19 +198,219 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		return playPos; // return the chosen play
 	}
 
+	/**
+	 * For each of the first numCandidates candidate legal play positions, play the given card there and perform as
+	 * many MC simulations as possible within an equal share of the time until the given deadline (at least one batch
+	 * each), adding simulation scores, squared scores and counts to the given arrays.
+	 * @param card card to play
+	 * @param candidates legal play list indices (in legalPlayLists[numPlays]) of the candidate positions
+	 * @param numCandidates number of candidate positions
+	 * @param deadline System.nanoTime() by which the simulations of all candidate positions should end
+	 * @param scoreTotals MC simulation score totals indexed by legal play list index
+	 * @param scoreSquares MC simulation squared score totals indexed by legal play list index
+	 * @param simCounts MC simulation counts indexed by legal play list index
+	 */
+	private void evaluatePlays(Card card, int[] candidates, int numCandidates, long deadline, double[] scoreTotals, double[] scoreSquares, long[] simCounts) {
+		long startTime = System.nanoTime();
+		for (int k = 0; k < numCandidates; k++) { // for each candidate legal play position
+			int i = candidates[k];
+			int play = legalPlayLists[numPlays][i];
+			long endTime = startTime + (deadline - startTime) * (k + 1) / numCandidates; // compute when MC simulations should end
+			makePlay(card, play / SIZE, play % SIZE);  // play the card at the empty position
+			do // perform as many MC simulations as possible through the allotted time, reading the clock once per batch
+				simulate(i, scoreTotals, scoreSquares, simCounts);
+			while (System.nanoTime() < endTime);
+			undoPlay(); // undo the play under evaluation
+		}
+	}
+
+	/**
+	 * Perform a batch of MC simulations of random play to the depth limit or game end, whichever comes first, from
+	 * the current state, accumulating their results at the given legal play list index.
+	 */
+	private void simulate(int i, double[] scoreTotals, double[] scoreSquares, long[] simCounts) {
+		for (int b = 0; b < SIM_BATCH; b++) {
+			double score = simPlay(depthLimit);
+			scoreTotals[i] += score; // accumulate MC simulation scores
+			scoreSquares[i] += score * score;
+		}
+		simCounts[i] += SIM_BATCH; // increment count of MC simulations
+	}
+
+	/**
+	 * Sort the first numCandidates candidates by decreasing average score.
+	 */
+	private static void sortByAverage(int[] candidates, int numCandidates, double[] scoreTotals, long[] simCounts) {
+		for (int k = 1; k < numCandidates; k++) {
+			int i = candidates[k];
+			double mean = scoreTotals[i] / simCounts[i];
+			int j = k;
+			while (j > 0 && scoreTotals[candidates[j - 1]] / simCounts[candidates[j - 1]] < mean) {
+				candidates[j] = candidates[j - 1];
+				j--;
+			}
+			candidates[j] = i;
+		}
+	}
+
+	/**
+	 * After the allocated time, keep simulating the two candidate plays of highest average score until the time
+	 * budget stops the move: at once if their averages are well separated, or at its hard deadline otherwise.
+	 * Root-parallel players simulate them on all threads, in slices of SEPARATION_SLICE_NANOS between checks.
+	 */
+	private void separateBestPlays(Card card, int[] candidates, int numCandidates, double[] scoreTotals, double[] scoreSquares, long[] simCounts) {
+		if (numCandidates < 2)
+			return;
+		int[] bestPair = new int[2]; // legal play list indices of the best and second best plays
+		while (true) {
+			int best = -1, second = -1;
+			for (int k = 0; k < numCandidates; k++) {
+				int i = candidates[k];
+				double mean = scoreTotals[i] / simCounts[i];
+				if (best < 0 || mean > scoreTotals[best] / simCounts[best]) {
+					second = best;
+					best = i;
+				}
+				else if (second < 0 || mean > scoreTotals[second] / simCounts[second])
+					second = i;
+			}
+			double lead = scoreTotals[best] / simCounts[best] - scoreTotals[second] / simCounts[second];
+			double variance = 0;
+			for (int i : new int[] {best, second}) {
+				double mean = scoreTotals[i] / simCounts[i];
+				variance += Math.max(0, scoreSquares[i] / simCounts[i] - mean * mean) / simCounts[i];
+			}
+			if (budget.shouldStop(lead, Math.sqrt(variance)))
+				return;
+			bestPair[0] = best;
+			bestPair[1] = second;
+			if (numThreads > 1) {
+				long deadline = Math.min(budget.getHardDeadline(), System.nanoTime() + SEPARATION_SLICE_NANOS);
+				evaluatePlaysInParallel(card, bestPair, 2, deadline, scoreTotals, scoreSquares, simCounts);
+				continue;
+			}
+			for (int i : bestPair) {
+				int play = legalPlayLists[numPlays][i];
+				makePlay(card, play / SIZE, play % SIZE);
+				simulate(i, scoreTotals, scoreSquares, simCounts);
+				undoPlay();
+			}
+		}
+	}
+
+	/**
+	 * Root-parallel version of evaluatePlays: every worker copies this player's game state and independently
+	 * evaluates all legal plays with its own simulation deck, play lists and pseudorandom number generator for
+	 * the same time, after which all worker results are merged.  This player serves as the first worker.
+	 */
+	private void evaluatePlaysInParallel(final Card card, final int[] candidates, final int numCandidates, final long deadline,
+			double[] scoreTotals, double[] scoreSquares, long[] simCounts) {
+		final int numLegalPlays = scoreTotals.length;
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		final double[][] workerScoreTotals = new double[workers.length][numLegalPlays];
+		final double[][] workerScoreSquares = new double[workers.length][numLegalPlays];
+		final long[][] workerSimCounts = new long[workers.length][numLegalPlays];
+		for (int w = 0; w < workers.length; w++) {
+			final int worker = w;
+			workers[w].copyStateFrom(this);
+			futures.add(PlayerExecutor.getShared().submit(new Runnable() {
+				@Override
+				public void run() {
+					workers[worker].evaluatePlays(card, candidates, numCandidates, deadline, workerScoreTotals[worker], workerScoreSquares[worker], workerSimCounts[worker]);
+				}
+			}));
+		}
+		evaluatePlays(card, candidates, numCandidates, deadline, scoreTotals, scoreSquares, simCounts);
+		for (int w = 0; w < workers.length; w++) {
+			try {
+				futures.get(w).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("MC simulation interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("MC simulation failed", e.getCause());
+			}
+			for (int i = 0; i < numLegalPlays; i++) {
+				scoreTotals[i] += workerScoreTotals[w][i];
+				scoreSquares[i] += workerScoreSquares[w][i];
+				simCounts[i] += workerSimCounts[w][i];
+			}
+		}
+	}
+
+	/**
+	 * Copy the game state (grid, plays and simulation deck) of the given player into this worker.
+	 * @param player player whose state is copied
+	 */
+	private void copyStateFrom(RandomMCPlayer player) {
+		numPlays = player.numPlays;
+		System.arraycopy(player.plays, 0, plays, 0, NUM_POS);
+		System.arraycopy(player.simDeck, 0, simDeck, 0, NUM_CARDS);
+		System.arraycopy(player.legalPlayLists[numPlays], 0, legalPlayLists[numPlays], 0, NUM_POS - numPlays);
+		for (int row = 0; row < SIZE; row++)
+			System.arraycopy(player.grid[row], 0, grid[row], 0, SIZE);
+		scorer.copyFrom(player.scorer);
+		setEvaluatorDeck();
+	}
+
+	/**
+	 * Set the undealt deck of the evaluator (if any) to the cards after the current card in simDeck.
+	 */
+	private void setEvaluatorDeck() {
+		if (evaluator == null)
+			return;
+		long undealt = 0L;
+		for (int i = numPlays + 1; i < NUM_CARDS; i++)
+			undealt |= 1L << simDeck[i].getCardId();
+		evaluator.setUndealt(undealt);
+	}
+
+	/**
+	 * Get the number of MC simulations performed for the most recent play decision.
+	 * @return the number of MC simulations performed for the most recent play decision
+	 */
+	public long getLastSimulationCount() {
+		return lastSimCount;
+	}
+
+	/**
+	 * Get the number of MC simulations of the 3 top-ranked plays (by round survived, then average score) for the
+	 * most recent play decision.
+	 * @return the number of MC simulations of the top 3 plays for the most recent play decision
+	 */
+	public long getLastTopSimulationCount() {
+		return lastTopSimCount;
+	}
+
+	/**
+	 * Set whether plays are selected by successive halving or by simulating all plays equally (the default).
+	 * @param enabled whether to use successive halving
+	 */
+	public void setSuccessiveHalving(boolean enabled) {
+		successiveHalving = enabled;
+	}
+
+	/**
+	 * Get the number of MC simulations per second performed for the most recent play decision.
+	 * @return the number of MC simulations per second performed for the most recent play decision
+	 */
+	public double getLastSimulationsPerSecond() {
+		return lastSimsPerSecond;
+	}
+
 	/**
 	 * From the chosen play, perform simulated Card draws and random placement (depthLimit) iterations forward 
-	 * and return the resulting grid score.
+	 * and return the resulting grid score, or with potential evaluation, the estimated expected final score of a
+	 * grid left incomplete.  (Package-private so that PokerSquaresBenchmark can measure rollouts.)
 	 * @param depthLimit - how many simulated random plays to perform
 	 * @return resulting grid score after random MC simulation to given depthLimit
 	 */
-	private int simPlay(int depthLimit) {
+	double simPlay(int depthLimit) {
 		if (depthLimit == 0) { // with zero depth limit, return current score
-			return system.getScore(grid);
+			return leafScore();
 		}
 		else { // up to the non-zero depth limit or to game end, iteratively make the given number of random plays 
-			int score = Integer.MIN_VALUE;
-			int maxScore = Integer.MIN_VALUE;
+			double score;
 			int depth = Math.min(depthLimit, NUM_POS - numPlays); // compute real depth limit, taking into account game end
 			for (int d = 0; d < depth; d++) {
 				// generate a random card draw
@@ -158,7 +424,7 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 				int play = legalPlayLists[numPlays][c2];
 				makePlay(card, play / SIZE, play % SIZE);
 			}
-			score = system.getScore(grid);
+			score = leafScore();
 
 			// Undo MC plays.
 			for (int d = 0; d < depth; d++) {
@@ -169,6 +435,13 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		}
 	}
 
+	/**
+	 * Return the score of a simulation leaf: the grid score, or the evaluator estimate if the grid is incomplete.
+	 */
+	private double leafScore() {
+		return evaluator == null || numPlays == NUM_POS ? scorer.getScore() : evaluator.evaluate(scorer);
+	}
+
 	public void makePlay(Card card, int row, int col) {
 		// match simDeck to event
 		int cardIndex = numPlays;
@@ -179,6 +452,7 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 
 		// update plays to reflect chosen play in sequence
 		grid[row][col] = card;
+		scorer.place(card, row, col);
 		int play = row * SIZE + col;
 		int j = 0;
 		while (plays[j] != play)
@@ -194,6 +468,7 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 		numPlays--;
 		int play = plays[numPlays];
 		grid[play / SIZE][play % SIZE] = null;
+		scorer.remove(play / SIZE, play % SIZE);
 	}
 
 	/* (non-Javadoc)
@@ -202,6 +477,61 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 	@Override
 	public void setPointSystem(PokerSquaresPointSystem system, long millis) {
 		this.system = system;
+		this.scorer = new IncrementalScorer(system);
+		this.tables = PointSystemTables.compute(system, millis);
+		for (RandomMCPlayer worker : workers) { // workers share the tables rather than spend the time budget again
+			worker.system = system;
+			worker.scorer = new IncrementalScorer(system);
+			worker.tables = tables;
+		}
+		setPotentialEvaluation(potentialEvaluation);
+	}
+
+	/**
+	 * Set whether simulations stopped at the depth limit before game end are scored by the estimated expected final
+	 * score of the grid ({@link LinePotentialEvaluator}) rather than by the current grid score.
+	 * @param enabled whether to use potential evaluation
+	 */
+	public void setPotentialEvaluation(boolean enabled) {
+		potentialEvaluation = enabled;
+		evaluator = enabled && system != null ? new LinePotentialEvaluator(system, tables, 16) : null;
+		for (RandomMCPlayer worker : workers)
+			worker.setPotentialEvaluation(enabled);
+	}
+
+	/**
+	 * Get the partial grid evaluator (e.g. to report its cache hit rate).
+	 * @return the partial grid evaluator, or null unless potential evaluation is enabled
+	 */
+	public LinePotentialEvaluator getEvaluator() {
+		return evaluator;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed) {
+		SplittableRandom seeds = new SplittableRandom(seed);
+		random = seeds.split();
+		for (RandomMCPlayer worker : workers)
+			worker.setSeed(seeds.nextLong());
+	}
+
+	/**
+	 * Get the point-system-specific tables precomputed in setPointSystem.
+	 * @return the point-system-specific tables
+	 */
+	public PointSystemTables getPointSystemTables() {
+		return tables;
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#getNumThreads()
+	 */
+	@Override
+	public int getNumThreads() {
+		return numThreads;
 	}
 
 	/* (non-Javadoc)
@@ -209,7 +539,8 @@ public class RandomMCPlayer implements PokerSquaresPlayer {
 	 */
 	@Override
 	public String getName() {
-		return "RandomMCPlayerDepth" + depthLimit;
+		String name = numThreads == 1 ? "RandomMCPlayerDepth" + depthLimit : "RandomMCDepth" + depthLimit + "x" + numThreads;
+		return potentialEvaluation ? name + "Potential" : name;
 	}
 
 	/**
@@ -1,4 +1,5 @@
 import java.util.Collections;
+import java.util.SplittableRandom;
 import java.util.Stack;
 
 /**
@@ -13,6 +14,7 @@ public class RandomPlayer implements PokerSquaresPlayer {
 	 * (See <a href="http://en.wikipedia.org/wiki/Row-major_order">http://en.wikipedia.org/wiki/Row-major_order</a>.)
 	 */
 	private Stack<Integer> plays = new Stack<Integer>(); 
+	private SplittableRandom random = new SplittableRandom(); // pseudorandom number generator for play positions
 	
 	/* (non-Javadoc)
 	 * @see PokerSquaresPlayer#setPointSystem(PokerSquaresPointSystem, long)
@@ -30,7 +32,16 @@ public class RandomPlayer implements PokerSquaresPlayer {
 		plays.clear();
 		for (int i = 0; i < 25; i++)
 			plays.push(i);
-		Collections.shuffle(plays); 
+		for (int i = plays.size(); i > 1; i--)
+			Collections.swap(plays, i - 1, random.nextInt(i));
+	}
+
+	/* (non-Javadoc)
+	 * @see PokerSquaresPlayer#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed) {
+		random = new SplittableRandom(seed);
 	}
 
 	/* (non-Javadoc)
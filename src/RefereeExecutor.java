@@ -0,0 +1,347 @@
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RefereeExecutor - the managed executor on which the referee runs player code with a time limit (setPointSystem()
+ * within POINT_SYSTEM_MILLIS, each getPlay() within the game time remaining).
+ *
+ * Threads are virtual threads where the Java runtime provides them (Java 21 or later, found by reflection so that
+ * the code still compiles for Java 8) and daemon platform threads otherwise.  Idle threads are cached and reused
+ * across games, tournaments and PokerSquares instances, so that a tournament no longer starts a thread per (player,
+ * point system) pair.  When a call exceeds its time limit, its thread is interrupted; players are expected to
+ * cancel cooperatively by checking Thread.interrupted() in their search loops (as TimeBudget.isExpired() does).  A
+ * cancelled call whose thread is still running after a grace period is counted as leaked and reported, and its
+ * caller gets a {@link LeakedCallException}: the player may still be changing its own state, so the referee must
+ * not call it again.
+ *
+ * Thread creation (count and nanoseconds), cancellations and leaks are recorded in {@link Metrics} and available
+ * from the getters.
+ */
+public class RefereeExecutor {
+
+	public static final long DEFAULT_GRACE_MILLIS = 1000L; // default time a cancelled call has to stop before it is counted as leaked
+	private static final Metrics.Counter THREADS_CREATED = Metrics.counter("RefereeExecutor.threadsCreated"); // threads created
+	private static final Metrics.Timer THREAD_CREATION = Metrics.timer("RefereeExecutor.threadCreation"); // thread creation latency
+	private static final Metrics.Counter CANCELLED = Metrics.counter("RefereeExecutor.cancelled"); // calls cancelled at their time limit
+	private static final Metrics.Counter LEAKED = Metrics.counter("RefereeExecutor.leaked"); // cancelled calls still running after the grace period
+	private static RefereeExecutor shared; // executor shared by all referees (guarded by the class lock)
+
+	/**
+	 * Thrown when a call that exceeded its time limit was still running after the grace period following its
+	 * cancellation.
+	 */
+	public static class LeakedCallException extends TimeoutException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Create an exception for the leaked call of the given description.
+		 * @param description description of the call
+		 */
+		public LeakedCallException(String description) {
+			super(description + " still running after cancellation");
+		}
+	}
+
+	/**
+	 * A call running on the executor, tracked until its thread finishes it.
+	 */
+	private final class TrackedCall<T> implements Callable<T> {
+		final Callable<T> task; // player code
+		final String description; // description for leak reports
+		volatile Thread thread; // thread running the call, or null if not started or finished
+
+		TrackedCall(Callable<T> task, String description) {
+			this.task = task;
+			this.description = description;
+		}
+
+		@Override
+		public T call() throws Exception {
+			thread = Thread.currentThread();
+			try {
+				return task.call();
+			}
+			finally {
+				leaked.remove(this);
+				thread = null;
+				Thread.interrupted(); // clear a late cancellation before the thread is reused
+			}
+		}
+	}
+
+	private final ExecutorService executor; // cached pool of referee threads
+	private final ThreadFactory threadFactory; // counting factory of referee threads
+	private final boolean virtualThreads; // whether threads are virtual
+	private final long graceMillis; // time a cancelled call has to stop before it is counted as leaked
+	private final AtomicInteger threadsCreated = new AtomicInteger(); // number of threads created
+	private final AtomicLong creationNanos = new AtomicLong(); // total nanoseconds spent creating threads
+	private final Set<TrackedCall<?>> leaked = ConcurrentHashMap.newKeySet(); // cancelled calls still running after the grace period
+	private final AtomicInteger numCancelled = new AtomicInteger(); // number of calls cancelled at their time limit
+	private final AtomicInteger numLeaked = new AtomicInteger(); // number of cancelled calls ever counted as leaked
+
+	/**
+	 * Create a referee executor with virtual threads if available and the default grace period.
+	 */
+	public RefereeExecutor() {
+		this(true, DEFAULT_GRACE_MILLIS);
+	}
+
+	/**
+	 * Create a referee executor.
+	 * @param preferVirtualThreads whether to use virtual threads if the Java runtime provides them
+	 * @param graceMillis time a cancelled call has to stop before it is counted as leaked
+	 */
+	public RefereeExecutor(boolean preferVirtualThreads, long graceMillis) {
+		final ThreadFactory base = preferVirtualThreads ? getVirtualThreadFactory() : null;
+		virtualThreads = base != null;
+		this.graceMillis = graceMillis;
+		threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				long start = System.nanoTime();
+				Thread thread;
+				if (base != null)
+					thread = base.newThread(runnable);
+				else {
+					thread = new Thread(runnable, "referee-" + threadsCreated.get());
+					thread.setDaemon(true);
+				}
+				long nanos = System.nanoTime() - start;
+				THREAD_CREATION.record(nanos);
+				THREADS_CREATED.increment();
+				creationNanos.addAndGet(nanos);
+				threadsCreated.incrementAndGet();
+				return thread;
+			}
+		};
+		executor = Executors.newCachedThreadPool(threadFactory);
+	}
+
+	/**
+	 * Return the executor shared by all referees, creating it on first use.
+	 * @return the shared referee executor
+	 */
+	public static synchronized RefereeExecutor getShared() {
+		if (shared == null)
+			shared = new RefereeExecutor();
+		return shared;
+	}
+
+	/**
+	 * Return a factory of virtual threads (by reflection on Thread.ofVirtual()), or null if the runtime has none.
+	 */
+	private static ThreadFactory getVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method name = builder.getClass().getMethod("name", String.class, long.class);
+			name.setAccessible(true);
+			builder = name.invoke(builder, "referee-", 0L);
+			Method factory = builder.getClass().getMethod("factory");
+			factory.setAccessible(true);
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Run the given task on a referee thread and wait at most the given time for its result.  At the time limit, the
+	 * task is cancelled by interrupting its thread.
+	 * @param task player code to run
+	 * @param millis time limit in milliseconds
+	 * @param description description of the task for leak reports
+	 * @return the result of the task
+	 * @throws LeakedCallException if the task did not finish within the time limit and was still running after the
+	 * grace period
+	 * @throws TimeoutException if the task did not finish within the time limit
+	 * @throws ExecutionException if the task threw an exception
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 */
+	public <T> T call(Callable<T> task, long millis, String description) throws TimeoutException, ExecutionException, InterruptedException {
+		TrackedCall<T> call = new TrackedCall<T>(task, description);
+		Future<T> future = executor.submit(call);
+		try {
+			return future.get(Math.max(0, millis), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			if (cancel(future, call))
+				throw new LeakedCallException(description);
+			throw e;
+		} catch (InterruptedException e) {
+			cancel(future, call);
+			throw e;
+		}
+	}
+
+	/**
+	 * Cancel the given call, and count it as leaked if its thread does not finish it within the grace period.
+	 * @return whether the call leaked
+	 */
+	private boolean cancel(Future<?> future, TrackedCall<?> call) {
+		future.cancel(true);
+		numCancelled.incrementAndGet();
+		CANCELLED.increment();
+		long deadline = System.nanoTime() + graceMillis * 1000000L;
+		while (call.thread != null && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		Thread thread = call.thread;
+		if (thread != null) {
+			leaked.add(call);
+			if (call.thread == null) // finished in the meantime
+				leaked.remove(call);
+			else {
+				numLeaked.incrementAndGet();
+				LEAKED.increment();
+				System.err.printf("Leaked referee thread %s still running %s %d ms after cancellation\n", thread.getName(), call.description, graceMillis);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the thread factory of this executor, so that other game orchestration (e.g. tournament game pools) shares
+	 * its kind of threads and creation accounting.
+	 * @return the thread factory
+	 */
+	public ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+
+	/**
+	 * Return whether this executor's threads are virtual threads.
+	 * @return whether threads are virtual
+	 */
+	public boolean isVirtual() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Get the number of threads created by this executor's thread factory.
+	 * @return the number of threads created
+	 */
+	public int getThreadsCreated() {
+		return threadsCreated.get();
+	}
+
+	/**
+	 * Get the mean time taken to create a thread.
+	 * @return the mean thread creation time in microseconds, or 0 if none were created
+	 */
+	public double getMeanCreationMicros() {
+		int created = getThreadsCreated();
+		return created == 0 ? 0 : creationNanos.get() / 1e3 / created;
+	}
+
+	/**
+	 * Get the number of calls cancelled at their time limit.
+	 * @return the number of cancelled calls
+	 */
+	public int getCancelledCount() {
+		return numCancelled.get();
+	}
+
+	/**
+	 * Get the number of cancelled calls that were still running after the grace period.
+	 * @return the number of leaked calls (including those that have since finished)
+	 */
+	public int getLeakedCount() {
+		return numLeaked.get();
+	}
+
+	/**
+	 * Get the number of leaked calls that are still running.
+	 * @return the number of leaked calls still running
+	 */
+	public int getRunningLeakedCount() {
+		return leaked.size();
+	}
+
+	/**
+	 * Return a report of thread creation, cancellations and leaked calls still running.
+	 * @return a multi-line report
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder(String.format("Referee executor: %s threads, %d created (mean %.1f us each), %d calls cancelled, %d leaked, %d leaked still running\n",
+				virtualThreads ? "virtual" : "platform", getThreadsCreated(), getMeanCreationMicros(),
+				getCancelledCount(), getLeakedCount(), getRunningLeakedCount()));
+		for (TrackedCall<?> call : leaked) {
+			Thread thread = call.thread;
+			if (thread != null)
+				report.append(String.format("  %s: %s\n", thread.getName(), call.description));
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Shut down this executor, interrupting running calls.  The shared executor should not be shut down.
+	 */
+	public void shutdownNow() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Demonstrate thread reuse across many short calls, and cancellation of a cooperative and an uncooperative call.
+	 * @param args (not used)
+	 * @throws Exception if a call fails unexpectedly
+	 */
+	public static void main(String[] args) throws Exception {
+		Metrics.setEnabled(true);
+		RefereeExecutor referee = new RefereeExecutor(true, 200L);
+		int numCalls = 100000;
+		long start = System.nanoTime();
+		for (int i = 0; i < numCalls; i++) {
+			final int value = i;
+			referee.call(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return value;
+				}
+			}, 1000L, "short call");
+		}
+		System.out.printf("%d short calls in %.3f s (%.1f us per call)\n", numCalls, (System.nanoTime() - start) / 1e9, (System.nanoTime() - start) / 1e3 / numCalls);
+		try {
+			referee.call(new Callable<Void>() {
+				@Override
+				public Void call() {
+					while (!Thread.currentThread().isInterrupted())
+						Thread.yield();
+					return null;
+				}
+			}, 100L, "cooperative loop");
+		} catch (TimeoutException e) {
+			System.out.println("Cooperative call cancelled");
+		}
+		try {
+			referee.call(new Callable<Void>() {
+				@Override
+				public Void call() {
+					long end = System.nanoTime() + 500000000L;
+					while (System.nanoTime() < end) // ignores interruption
+						Thread.yield();
+					return null;
+				}
+			}, 100L, "uncooperative loop");
+		} catch (LeakedCallException e) {
+			System.out.println("Uncooperative call cancelled and leaked");
+		}
+		System.out.print(referee.getReport());
+		referee.shutdownNow();
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * TimeBudget - per-move time allocation for Poker Squares players.
+ *
+ * At the start of each move, the game time remaining (less a safety margin against the referee's out-of-time check)
+ * is divided among the remaining plays in proportion to per-play weights indexed by the number of cards already
+ * played, giving the move a soft deadline.  A move may continue past its soft deadline, up to a hard deadline of a
+ * fixed multiple of its allocation, while its best candidates are too close to separate (see
+ * {@link #shouldStop(double, double)}).  Time used beyond the allocation is simply unavailable to later moves,
+ * whose allocations are computed from the time actually remaining.
+ *
+ * The default weights grow with the square root of the number of candidate positions, except that the first play
+ * (where all positions are equivalent by symmetry) gets a tenth of a share and the forced last play none.
+ * Deadlines use System.nanoTime(), and {@link #isExpired()} reads the clock only once per check interval of calls,
+ * so that it may be called once per simulation.
+ */
+public class TimeBudget {
+
+	private static final int NUM_POS = PokerSquares.SIZE * PokerSquares.SIZE; // number of plays in a game
+	public static final long DEFAULT_SAFETY_MILLIS = 100L; // default fixed safety margin
+	public static final double DEFAULT_SAFETY_FRACTION = 0.02; // default safety margin fraction of the remaining time
+	public static final double DEFAULT_EXTENSION = 2.0; // default hard deadline multiple of the allocation
+	public static final double DEFAULT_SEPARATION = 2.0; // standard errors by which a best candidate must lead to stop
+	public static final int DEFAULT_CHECK_INTERVAL = 16; // default isExpired() calls per clock read
+
+	private final double[] weights; // time weight of each play, indexed by number of cards played
+	private final long safetyMillis; // fixed safety margin
+	private final double safetyFraction; // safety margin fraction of the remaining time
+	private final double extension; // hard deadline multiple of the allocation
+	private final double separation; // standard errors by which a best candidate must lead to stop at the soft deadline
+	private final int checkInterval; // isExpired() calls per clock read
+	private int countdown; // isExpired() calls until the next clock read
+	private boolean expired; // whether the soft deadline was found to have passed
+	private long startNanos; // System.nanoTime() at the start of the move
+	private long softDeadline; // System.nanoTime() of the soft deadline
+	private long hardDeadline; // System.nanoTime() of the hard deadline
+
+	/**
+	 * Create a time budget with the default weights, safety margin, extension, separation and check interval.
+	 */
+	public TimeBudget() {
+		this(getDefaultWeights(), DEFAULT_SAFETY_MILLIS, DEFAULT_SAFETY_FRACTION, DEFAULT_EXTENSION, DEFAULT_SEPARATION, DEFAULT_CHECK_INTERVAL);
+	}
+
+	/**
+	 * Create a time budget.
+	 * @param weights time weight of each play, indexed by number of cards played (length 25)
+	 * @param safetyMillis fixed safety margin in milliseconds
+	 * @param safetyFraction safety margin fraction of the remaining time
+	 * @param extension hard deadline multiple of the allocation (at least 1)
+	 * @param separation standard errors by which a best candidate must lead to stop at the soft deadline
+	 * @param checkInterval isExpired() calls per clock read
+	 */
+	public TimeBudget(double[] weights, long safetyMillis, double safetyFraction, double extension, double separation, int checkInterval) {
+		if (weights.length != NUM_POS)
+			throw new IllegalArgumentException("Expected " + NUM_POS + " weights, got " + weights.length);
+		this.weights = weights.clone();
+		this.safetyMillis = safetyMillis;
+		this.safetyFraction = safetyFraction;
+		this.extension = Math.max(1, extension);
+		this.separation = separation;
+		this.checkInterval = Math.max(1, checkInterval);
+	}
+
+	/**
+	 * Return the default play weights.
+	 * @return the default play weights, indexed by number of cards played
+	 */
+	public static double[] getDefaultWeights() {
+		double[] weights = new double[NUM_POS];
+		for (int numPlays = 0; numPlays < NUM_POS - 1; numPlays++)
+			weights[numPlays] = Math.sqrt(NUM_POS - numPlays);
+		weights[0] *= 0.1;
+		return weights;
+	}
+
+	/**
+	 * Start timing a move and compute its deadlines.
+	 * @param millisRemaining game time remaining in milliseconds
+	 * @param numPlays number of cards already played
+	 * @return the move's allocation (time to its soft deadline) in milliseconds
+	 */
+	public long startMove(long millisRemaining, int numPlays) {
+		startNanos = System.nanoTime();
+		long usable = Math.max(0, millisRemaining - safetyMillis - (long) (safetyFraction * millisRemaining));
+		double weightSum = 0;
+		for (int i = numPlays; i < NUM_POS; i++)
+			weightSum += weights[i];
+		long allocation = weightSum > 0 ? (long) (usable * weights[numPlays] / weightSum) : 0;
+		long hard = Math.min(usable, (long) (allocation * extension));
+		softDeadline = startNanos + allocation * 1000000L;
+		hardDeadline = startNanos + hard * 1000000L;
+		countdown = checkInterval;
+		expired = allocation == 0;
+		return allocation;
+	}
+
+	/**
+	 * Return whether the soft deadline has passed or the thread was interrupted (the referee's cancellation of a move
+	 * out of time), reading the clock only once per check interval of calls.
+	 * @return whether the soft deadline has passed or the thread was interrupted (as of the latest clock read)
+	 */
+	public boolean isExpired() {
+		if (!expired && --countdown <= 0) {
+			countdown = checkInterval;
+			expired = System.nanoTime() >= softDeadline || Thread.currentThread().isInterrupted();
+		}
+		return expired;
+	}
+
+	/**
+	 * Return whether to stop the move given the lead of the best candidate over the second best: never before the
+	 * soft deadline, always after the hard deadline, and in between once the lead is at least the separation times
+	 * its standard error, and always once the thread is interrupted.  Reads the clock on every call.
+	 * @param lead best candidate mean minus second best candidate mean
+	 * @param standardError standard error of the lead
+	 * @return whether to stop the move
+	 */
+	public boolean shouldStop(double lead, double standardError) {
+		long now = System.nanoTime();
+		if (Thread.currentThread().isInterrupted())
+			return true;
+		if (now < softDeadline)
+			return false;
+		return now >= hardDeadline || lead >= separation * standardError;
+	}
+
+	/**
+	 * Get the System.nanoTime() of the soft deadline of the current move.
+	 * @return the soft deadline in nanoseconds
+	 */
+	public long getSoftDeadline() {
+		return softDeadline;
+	}
+
+	/**
+	 * Get the System.nanoTime() of the hard deadline of the current move.
+	 * @return the hard deadline in nanoseconds
+	 */
+	public long getHardDeadline() {
+		return hardDeadline;
+	}
+
+	/**
+	 * Get the System.nanoTime() of the start of the current move.
+	 * @return the move start time in nanoseconds
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * Get the milliseconds elapsed since the start of the current move.
+	 * @return the milliseconds elapsed since the start of the current move
+	 */
+	public long getElapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1000000L;
+	}
+}
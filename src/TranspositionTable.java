@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * TranspositionTable - fixed-capacity hash table of value estimates and visit counts keyed by 64-bit position hashes
+ * (e.g. from GridCanonicalizer).  Each key may reside in either of the two entries of its bucket.  When both are
+ * occupied by other keys, the entry with fewer visits is replaced, so that well-sampled estimates survive longer.
+ * Memory use is fixed at construction.  Hits, misses, stores and evictions are counted.  Not thread-safe.
+ */
+public class TranspositionTable {
+
+	private final long[] keys; // entry keys (0 for empty entries; key 0 is stored as 1)
+	private final double[] values; // entry value estimates
+	private final int[] visits; // entry visit counts
+	private final int mask; // entry index mask
+	private long hits; // lookups finding their key
+	private long misses; // lookups not finding their key
+	private long stores; // stores of new keys
+	private long evictions; // stores replacing another key
+
+	/**
+	 * Create a table with 2^bits entries.  Each entry occupies 20 bytes.
+	 * @param bits log2 of the number of entries (at least 1)
+	 */
+	public TranspositionTable(int bits) {
+		keys = new long[1 << bits];
+		values = new double[1 << bits];
+		visits = new int[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Return the entry index of the given key, or -1 if absent.  Counts a hit or miss.
+	 * @param key position hash
+	 * @return the entry index of the given key, or -1 if absent
+	 */
+	public int find(long key) {
+		key = key == 0L ? 1L : key;
+		int index = index(key);
+		if (keys[index] == key || keys[index ^= 1] == key) {
+			hits++;
+			return index;
+		}
+		misses++;
+		return -1;
+	}
+
+	/**
+	 * Get the value estimate of the entry at the given index.
+	 * @param index entry index returned by find
+	 * @return the value estimate of the entry
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Get the visit count of the entry at the given index.
+	 * @param index entry index returned by find
+	 * @return the visit count of the entry
+	 */
+	public int getVisits(int index) {
+		return visits[index];
+	}
+
+	/**
+	 * Store a value estimate and visit count for the given key, replacing any previous entry of the key.
+	 * @param key position hash
+	 * @param value value estimate
+	 * @param visitCount visit count (weight) of the estimate
+	 */
+	public void put(long key, double value, int visitCount) {
+		int index = slot(key == 0L ? 1L : key);
+		values[index] = value;
+		visits[index] = visitCount;
+	}
+
+	/**
+	 * Add a sampled value of the given key to its running mean value estimate and increment its visit count.
+	 * @param key position hash
+	 * @param sample sampled value
+	 */
+	public void add(long key, double sample) {
+		int index = slot(key == 0L ? 1L : key);
+		int n = ++visits[index];
+		values[index] += (sample - values[index]) / n;
+	}
+
+	/**
+	 * Return the entry index for the given (nonzero) key, claiming an empty or the least visited entry of its
+	 * bucket (reset to zero value and visits) if the key is absent.
+	 */
+	private int slot(long key) {
+		int index = index(key);
+		int other = index ^ 1;
+		if (keys[index] == key)
+			return index;
+		if (keys[other] == key)
+			return other;
+		if (keys[index] != 0L && (keys[other] == 0L || visits[other] < visits[index]))
+			index = other;
+		if (keys[index] != 0L)
+			evictions++;
+		stores++;
+		keys[index] = key;
+		values[index] = 0;
+		visits[index] = 0;
+		return index;
+	}
+
+	/**
+	 * Return the first entry index of the bucket of the given key.
+	 */
+	private int index(long key) {
+		return (int) (key >>> 32 ^ key) & mask & ~1;
+	}
+
+	/**
+	 * Remove all entries (counters are kept).
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+	}
+
+	/**
+	 * Reset the hit, miss, store and eviction counters.
+	 */
+	public void resetCounters() {
+		hits = misses = stores = evictions = 0;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getStores() {
+		return stores;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of entries.
+	 * @return the number of entries
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Get the fraction of lookups that found their key.
+	 * @return the fraction of lookups that found their key
+	 */
+	public double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("Transposition table: %d entries, %d hits, %d misses (hit rate %.3f), %d stores, %d evictions",
+				keys.length, hits, misses, getHitRate(), stores, evictions);
+	}
+}